@@ -246,6 +246,18 @@ public class AndroidPlatform extends Platform
         return false;
     }
 
+    /** The emulator reaches the host's localhost at 10.0.2.2. */
+    protected String serverUrl()
+    {
+        return "http://10.0.2.2:8080/";
+    }
+
+    /** Posts the runnable to the UI thread of the activity. */
+    public void runOnUiThread(Runnable runnable)
+    {
+        activity.runOnUiThread(runnable);
+    }
+
     /** Activates the designated menu item. */
     public void outputMenu(String numeral, String option, String selection) 
     {
@@ -104,6 +104,9 @@ public abstract class ClientInputHandler {
 
     /** This hook method executes a command. */
     protected void executeCommand(UserCommandProxy commandProxy) throws Exception {
-        commandProxy.execute();
+        if (Options.instance().pipeline())
+            UserCommandBatcher.instance().submit(commandProxy.userCommandString());
+        else
+            commandProxy.execute();
     }
 }
@@ -18,22 +18,30 @@ public class CommandLinePlatform extends Platform {
      */
     InputStream input;
 
+    /**
+     * Reads the lines of @a input.  It's kept across calls since it
+     * buffers more than a line, e.g., when the input is piped in.
+     */
+    Scanner scanner;
+
     /** Contains information for outputting to console window. */
     PrintStream output;
 
     /** Ctor. */
     CommandLinePlatform(Object input, Object output) {
         this.input = (InputStream) input;
+        this.scanner = new Scanner(this.input);
         this.output = (PrintStream) output;
     }
 	
     /**
      * Retrieves input from console and returns the value as a
-     * string. 
+     * string, which is empty once the input ends.
      */
     public String retrieveInput(boolean verbose) {
-        Scanner s = new Scanner(input);	
-        return s.nextLine();
+        if (!scanner.hasNextLine())
+            return "";
+        return scanner.nextLine();
     }
 
     /** 
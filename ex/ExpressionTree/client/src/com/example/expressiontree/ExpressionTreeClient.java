@@ -0,0 +1,251 @@
+package com.example.expressiontree;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.example.expressiontree.model.BinaryProtocol;
+import com.example.expressiontree.model.ServerResponse;
+
+import retrofit.RestAdapter;
+
+/**
+ * @class ExpressionTreeClient
+ *
+ * @brief The connection of this client to the server that hosts the
+ *        expression tree code.  Each @a Platform creates one the first
+ *        time it's asked for it and keeps it, so the Retrofit service,
+ *        its JSON converter, and the pooled keep-alive HTTP
+ *        connections are set up once rather than per command.  It also
+ *        owns the single, bounded executor that the commands which
+ *        mustn't block the caller (e.g., the UI thread of Android) run
+ *        on.
+ */
+public class ExpressionTreeClient {
+    /**
+     * Number of threads of the executor.
+     */
+    public final static int THREADS = 1;
+
+    /**
+     * Maximum number of commands waiting for a thread of the
+     * executor.
+     */
+    public final static int QUEUE_CAPACITY = 64;
+
+    /**
+     * The URL of the server, e.g., "http://localhost:8080/".
+     */
+    private final String mUrl;
+
+    /**
+     * The Retrofit interface to the server, which talks JSON.
+     */
+    private final ExpressionTreeService mService;
+
+    /**
+     * Runs the commands that mustn't block the caller.
+     */
+    private final ThreadPoolExecutor mExecutor;
+
+    /**
+     * The ID the server associated with this client, or null until it
+     * does.  It's set as soon as a response carries it, i.e., before
+     * the next request is sent.
+     */
+    private volatile Long mClientID = null;
+
+    /**
+     * The queue of the commands that mustn't block the caller,
+     * created the first time it's needed.
+     */
+    private UserCommandQueue mCommandQueue = null;
+
+    /**
+     * Constructor connects to the server at @a url.
+     */
+    public ExpressionTreeClient(String url) {
+        mUrl = url;
+
+        mExecutor =
+            new ThreadPoolExecutor(THREADS,
+                                   THREADS,
+                                   0L,
+                                   TimeUnit.MILLISECONDS,
+                                   new ArrayBlockingQueue<Runnable>(QUEUE_CAPACITY),
+                                   new ThreadFactory() {
+                                       public Thread newThread(Runnable runnable) {
+                                           Thread thread =
+                                               new Thread(runnable,
+                                                          "ExpressionTreeClient");
+                                           thread.setDaemon(true);
+                                           return thread;
+                                       }
+                                   });
+
+        // Use Retrofit to build a simple interface to our
+        // ExpressionTree server, which runs its asynchronous calls (if
+        // any) on our executor rather than on threads of its own.
+        mService = new RestAdapter.Builder()
+            .setEndpoint(url)
+            .setExecutors(mExecutor, null)
+            .build()
+            .create(ExpressionTreeService.class);
+    }
+
+    /**
+     * Returns the executor for the commands that mustn't block the
+     * caller.  It throws @a RejectedExecutionException when it has
+     * @a QUEUE_CAPACITY commands waiting already.
+     */
+    public Executor executor() {
+        return mExecutor;
+    }
+
+    /**
+     * Returns the ID the server associated with this client, or null.
+     */
+    public Long clientID() {
+        return mClientID;
+    }
+
+    /**
+     * Returns the queue of the commands that mustn't block the
+     * caller, which runs them in order on our executor, with as many
+     * in flight as the Options allow.
+     */
+    public synchronized UserCommandQueue commandQueue() {
+        if (mCommandQueue == null) {
+            mCommandQueue = new UserCommandQueue(this);
+            mCommandQueue.maxInFlight(Options.instance().maxInFlight());
+        }
+
+        return mCommandQueue;
+    }
+
+    /**
+     * Send the command strings to the server in one request, in the
+     * protocol chosen by the Options, and wait for the responses.
+     * The binary protocol returns a response per command, and JSON a
+     * single response for all of them.
+     */
+    public List<ServerResponse> execute(List<String> userCommandStrings)
+        throws IOException {
+        List<ServerResponse> responses = Options.instance().binaryProtocol()
+            ? executeBinary(userCommandStrings)
+            : Collections.singletonList(executeJson(userCommandStrings));
+
+        // The server might have given us a client ID, even along with
+        // an exception. If it did, we should keep it for the next
+        // request.
+        for (ServerResponse response : responses)
+            if (response.clientID != null)
+                mClientID = response.clientID;
+
+        return responses;
+    }
+
+    /**
+     * Send the command strings to the server through the Retrofit
+     * service.
+     */
+    private ServerResponse executeJson(List<String> userCommandStrings)
+        throws UnsupportedEncodingException {
+        List<String> inputs = new ArrayList<String>();
+        for (String userCommandString : userCommandStrings)
+            inputs.add(URLEncoder.encode(userCommandString, "UTF-8"));
+
+        // If we have an ID for this specific session, go ahead and
+        // send it along with the command strings.
+        Long clientID = mClientID;
+        if (clientID != null)
+            return mService.execute(inputs, clientID);
+
+        // Otherwise, just send the command strings, signaling that we
+        // need a token for this session.
+        else
+            return mService.execute(inputs);
+    }
+
+    /**
+     * Send the command strings to the server in frames of the
+     * @a BinaryProtocol, POSTed to the same endpoint as the JSON
+     * requests.
+     */
+    private List<ServerResponse> executeBinary(List<String> userCommandStrings)
+        throws IOException {
+        Long clientID = mClientID;
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        DataOutputStream framesOut = new DataOutputStream(frames);
+
+        for (String userCommandString : userCommandStrings) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream payload = new DataOutputStream(bytes);
+            payload.writeLong(clientID != null
+                              ? clientID
+                              : BinaryProtocol.NO_CLIENT_ID);
+            BinaryProtocol.writeString(payload, userCommandString);
+            BinaryProtocol.writeFrame(framesOut, bytes);
+        }
+
+        HttpURLConnection connection = (HttpURLConnection)
+            new URL(mUrl + "ExpressionTreeServer").openConnection();
+        connection.setDoOutput(true);
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty("Content-Type",
+                                      BinaryProtocol.CONTENT_TYPE);
+
+        // There's no streaming mode, so the connection buffers the
+        // frames and sends them along with the headers, rather than
+        // in a second packet that waits for the ACK of the first on a
+        // kept-alive connection.
+        OutputStream out = connection.getOutputStream();
+        frames.writeTo(out);
+        out.close();
+
+        // A server that's too busy still answers with a frame.
+        InputStream body = connection.getResponseCode() < 400
+            ? connection.getInputStream()
+            : connection.getErrorStream();
+        if (body == null)
+            throw new IOException("HTTP " + connection.getResponseCode()
+                                  + " from the server");
+
+        // Reading the body to its end, and then closing it, hands the
+        // connection back to the pool rather than closing it.
+        try {
+            DataInputStream in =
+                new DataInputStream(new BufferedInputStream(body));
+            List<ServerResponse> responses = new ArrayList<ServerResponse>();
+
+            // There's a frame per command, or a single one if the
+            // batch was malformed or the server too busy.
+            for (ServerResponse response;
+                 (response = ServerResponse.readBinary(in)) != null; )
+                responses.add(response);
+
+            if (responses.isEmpty())
+                throw new EOFException("No response from the server");
+            return responses;
+        } finally {
+            body.close();
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.expressiontree;
 
+import java.util.List;
+
 import com.example.expressiontree.model.ServerResponse;
 
 import retrofit.http.GET;
@@ -18,4 +20,14 @@ public interface ExpressionTreeService {
 	
     @GET("/ExpressionTreeServer")
     ServerResponse execute(@Query("input") String input, @Query("clientID") Long clientID);
+
+    /**
+     * Runs a batch of commands, in order, and returns a single
+     * response with the output of all of them.
+     */
+    @GET("/ExpressionTreeServer")
+    ServerResponse execute(@Query("input") List<String> inputs);
+
+    @GET("/ExpressionTreeServer")
+    ServerResponse execute(@Query("input") List<String> inputs, @Query("clientID") Long clientID);
 }
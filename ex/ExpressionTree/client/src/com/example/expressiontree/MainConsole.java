@@ -12,7 +12,7 @@ public class MainConsole {
      * method to run the command line version of the encapsulated
      * expression tree.
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws InterruptedException {
         // Initializes the Platform singleton with the appropriate
         // Platform strategy, which in this case will be the
         // CommandLinePlatform.
@@ -37,5 +37,9 @@ public class MainConsole {
 
         // Process all user input expressions. 
         InputDispatcher.instance().dispatchAllInputs();
+
+        // Wait for the commands that are still batched, if any.
+        if (Options.instance().pipeline())
+            UserCommandBatcher.instance().flush();
     }
 }
@@ -18,6 +18,24 @@ public class Options {
      */
     private boolean verbose = false;
 
+    /**
+     * Do we talk to the server in the @a BinaryProtocol rather than
+     * in JSON?
+     */
+    private boolean binaryProtocol = false;
+
+    /**
+     * Do we batch the commands entered in quick succession (e.g., by
+     * a script) into a single request?
+     */
+    private boolean pipeline = false;
+
+    /**
+     * Maximum number of commands the @a UserCommandQueue sends in one
+     * request of the binary protocol.
+     */
+    private int maxInFlight = UserCommandQueue.DEFAULT_MAX_IN_FLIGHT;
+
     /**
      * The singleton @a Options instance. 
      */
@@ -40,13 +58,43 @@ public class Options {
         return this.verbose;
     }
 
+    /**
+     * Talk to the server in the binary protocol.
+     */
+    public boolean binaryProtocol() {
+        return this.binaryProtocol;
+    }
+
+    /**
+     * Batch the commands through the @a UserCommandBatcher.
+     */
+    public boolean pipeline() {
+        return this.pipeline;
+    }
+
+    /**
+     * Maximum number of commands in flight in the
+     * @a UserCommandQueue.
+     */
+    public int maxInFlight() {
+        return this.maxInFlight;
+    }
+
     /**
      * Parse command-line arguments and set the appropriate values.
      */
     public boolean parseArgs(String argv[]) {
-        if (argv.length > 0) {
-            if (argv[0].equals("-v"))
+        for (int i = 0; i < argv.length; ++i) {
+            if (argv[i].equals("-v"))
                 verbose = true;
+            else if (argv[i].equals("-b"))
+                binaryProtocol = true;
+            else if (argv[i].equals("-p"))
+                pipeline = true;
+            else if (argv[i].equals("-m")
+                     && i + 1 < argv.length
+                     && parseMaxInFlight(argv[i + 1]))
+                ++i;
             else {
                 printUsage();
                 return false;
@@ -56,6 +104,22 @@ public class Options {
         return true;
     }
 
+    /**
+     * Set @a maxInFlight to the number in @a arg, or return false if
+     * it isn't a number of at least 1.
+     */
+    private boolean parseMaxInFlight(String arg) {
+        try {
+            int value = Integer.parseInt(arg);
+            if (value < 1)
+                return false;
+            maxInFlight = value;
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
     /** 
      * Print out usage and default values. 
      */
@@ -64,7 +128,7 @@ public class Options {
         platform.errorLog("Options",
                           "\nHelp Invoked on ");
         platform.errorLog("Options",
-                          "[-h|-v] ");
+                          "[-h|-v|-b|-p|-m n] ");
         platform.errorLog("",
                           "");
         platform.errorLog("",
@@ -75,7 +139,15 @@ public class Options {
         platform.errorLog("Options",
                           "-h: invoke help ");
         platform.errorLog("Options",
-                          "-v: enter verbose mode \n");
+                          "-v: enter verbose mode ");
+        platform.errorLog("Options",
+                          "-b: use the binary protocol ");
+        platform.errorLog("Options",
+                          "-p: batch the commands piped in ");
+        platform.errorLog("Options",
+                          "-m n: send up to n queued commands per binary "
+                          + "request (default "
+                          + UserCommandQueue.DEFAULT_MAX_IN_FLIGHT + ") \n");
     }
 
     /**
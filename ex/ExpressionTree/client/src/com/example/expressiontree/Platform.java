@@ -14,6 +14,12 @@ public abstract class Platform {
      */
     private static Platform uniqueInstance = null;
 
+    /**
+     * The connection of this platform to the server, created the
+     * first time it's needed.
+     */
+    private ExpressionTreeClient mClient = null;
+
     /**
      * Method to return the one and only singleton instance. 
      */
@@ -89,6 +95,33 @@ public abstract class Platform {
     public abstract void errorLog(String javaFile,
                                   String errorMessage);
 
+    /**
+     * Returns the connection of this platform to the server, which
+     * it keeps for all the commands.
+     */
+    public synchronized ExpressionTreeClient client() {
+        if (mClient == null)
+            mClient = new ExpressionTreeClient(serverUrl());
+
+        return mClient;
+    }
+
+    /**
+     * Returns the URL of the server that hosts the expression tree
+     * code.
+     */
+    protected String serverUrl() {
+        return "http://localhost:8080/";
+    }
+
+    /**
+     * Runs the @a runnable on the thread that may update the user
+     * interface, which on the command line is the caller's.
+     */
+    public void runOnUiThread(Runnable runnable) {
+        runnable.run();
+    }
+
     /**
      * Make the constructor protected for a singleton.
      */
@@ -1,7 +1,10 @@
 package com.example.expressiontree;
 
+import java.io.DataInputStream;
+import java.io.IOException;
 import java.lang.reflect.Method;
 
+import com.example.expressiontree.model.BinaryProtocol;
 import com.example.expressiontree.model.PlatformCall;
 import com.example.expressiontree.model.ServerResponse;
 
@@ -14,11 +17,23 @@ import com.example.expressiontree.model.ServerResponse;
 public class PlatformProxyInterpreter {
     /**
      * Interprets the given server response and makes the
-     * corresponding calls to Platform singleton.
+     * corresponding calls to Platform singleton.  Besides an "ok"
+     * response, an "exception" may carry the output of the commands
+     * that ran before the one that failed.
      */
     public static void interpret(Platform platform,
                                  ServerResponse response) {
-        if (response.result.toLowerCase().equals("ok")) {
+        if (response.encodedPlatformCalls != null) {
+            try {
+                interpret(platform, response.encodedPlatformCalls);
+            } catch (IOException e) {
+                platform.errorLog("PlatformProxyInterpreter",
+                                  "Malformed response: " + e.getMessage());
+            }
+            return;
+        }
+
+        if (response.platformCalls != null) {
             for (PlatformCall call : response.platformCalls) {
                 if (call.fname.equals("outputLine"))
                     platform.outputLine(call.params.get(0));
@@ -41,4 +56,46 @@ public class PlatformProxyInterpreter {
             }
         }
     }
+
+    /**
+     * Decodes the platform calls of a response of the
+     * @a BinaryProtocol from @a in and makes them, dispatching on
+     * their function IDs.
+     */
+    private static void interpret(Platform platform,
+                                  DataInputStream in) throws IOException {
+        for (int calls = in.readInt(); calls > 0; --calls) {
+            byte function = in.readByte();
+
+            switch (function) {
+            case BinaryProtocol.OUTPUT_LINE:
+                platform.outputLine(BinaryProtocol.readString(in));
+                break;
+            case BinaryProtocol.OUTPUT_STRING:
+                platform.outputString(BinaryProtocol.readString(in));
+                break;
+            case BinaryProtocol.OUTPUT_MENU:
+                platform.outputMenu(BinaryProtocol.readString(in),
+                                    BinaryProtocol.readString(in),
+                                    BinaryProtocol.readString(in));
+                break;
+            case BinaryProtocol.ENABLE_OPTION:
+                platform.enableOption(BinaryProtocol.readString(in));
+                break;
+            case BinaryProtocol.DISABLE_ALL:
+                platform.disableAll(in.readBoolean());
+                break;
+            case BinaryProtocol.ADD_STRING:
+                platform.addString(BinaryProtocol.readString(in));
+                break;
+            case BinaryProtocol.ERROR_LOG:
+                // Skipped, like the errorLog calls of JSON responses.
+                BinaryProtocol.readString(in);
+                BinaryProtocol.readString(in);
+                break;
+            default:
+                throw new IOException("Unknown function ID " + function);
+            }
+        }
+    }
 }
@@ -0,0 +1,133 @@
+package com.example.expressiontree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @class UserCommandBatcher
+ *
+ * @brief Coalesces the user commands submitted within a short window
+ *        into a single request to the server, so a script of commands
+ *        doesn't pay a round trip per command.  The batches are sent,
+ *        and their responses interpreted, one at a time and in order
+ *        on a thread of the batcher.  It implements the Singleton
+ *        pattern.
+ */
+public class UserCommandBatcher {
+    /**
+     * How long to wait for more commands after the first one of a
+     * batch, in milliseconds.
+     */
+    public final static long WINDOW_MILLIS = 20;
+
+    /**
+     * Maximum number of commands in a batch.
+     */
+    public final static int MAX_BATCH_SIZE = 256;
+
+    /**
+     * The commands of the next batch (guarded by this).
+     */
+    private List<String> mPending = new ArrayList<String>();
+
+    /**
+     * Sends the batches, one at a time.
+     */
+    private final ScheduledExecutorService mSender =
+        Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "UserCommandBatcher");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    /**
+     * The singleton @a UserCommandBatcher instance.
+     */
+    private static UserCommandBatcher uniqueInstance = null;
+
+    /**
+     * Method to return the one and only singleton instance.
+     */
+    public static synchronized UserCommandBatcher instance() {
+        if (uniqueInstance == null)
+            uniqueInstance = new UserCommandBatcher();
+
+        return uniqueInstance;
+    }
+
+    /**
+     * Add the @a userCommandString to the next batch, which is sent
+     * once it's full or @a WINDOW_MILLIS after its first command.
+     */
+    public synchronized void submit(String userCommandString) {
+        mPending.add(userCommandString);
+
+        if (mPending.size() == MAX_BATCH_SIZE)
+            send();
+        else if (mPending.size() == 1)
+            mSender.schedule(new Runnable() {
+                    public void run() {
+                        synchronized (UserCommandBatcher.this) {
+                            send();
+                        }
+                    }
+                }, WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Send the commands submitted so far and wait until all the
+     * responses have been interpreted.
+     */
+    public void flush() throws InterruptedException {
+        synchronized (this) {
+            send();
+        }
+
+        // The sender runs its tasks in order, so this one runs after
+        // all the batches.
+        try {
+            mSender.submit(new Runnable() {
+                    public void run() {
+                    }
+                }).get();
+        } catch (ExecutionException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Hand the pending commands, if any, to the sender as a batch.
+     * Called with the lock held, so the batches are queued in the
+     * order of their commands.
+     */
+    private void send() {
+        if (mPending.isEmpty())
+            return;
+
+        final List<String> batch = mPending;
+        mPending = new ArrayList<String>();
+
+        mSender.execute(new Runnable() {
+                public void run() {
+                    try {
+                        UserCommandProxy.execute(batch);
+                    } catch (Exception e) {
+                        Platform.instance().outputLine(e.getMessage());
+                    }
+                }
+            });
+    }
+
+    /**
+     * Make the constructor private for a singleton.
+     */
+    private UserCommandBatcher() {
+    }
+}
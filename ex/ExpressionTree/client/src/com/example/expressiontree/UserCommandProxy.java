@@ -1,13 +1,11 @@
 package com.example.expressiontree;
 
-import java.io.UnsupportedEncodingException;
-import java.net.URLEncoder;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 
 import com.example.expressiontree.model.ServerResponse;
 
-import retrofit.RestAdapter;
-import android.os.AsyncTask;
-
 /**
  * @class UserCommandProxy
  *
@@ -20,11 +18,6 @@ public class UserCommandProxy {
      */
     private String mUserCommandString;
     
-    /**
-     * The ID associated with this client.
-     */
-    static Long mClientID = null;
-
     /**
      * Constructor sets the user command string.
      */
@@ -32,47 +25,32 @@ public class UserCommandProxy {
         mUserCommandString = userCommandString;
     }
 
+    /**
+     * Returns the command string created by the user.
+     */
+    public String userCommandString() {
+        return mUserCommandString;
+    }
+
     /** 
      * Runs the user command on the server.  
      */
     public void execute() throws Exception {
+        ExpressionTreeClient client = Platform.instance().client();
+
     	// Android requires that networking IO be performed in a
     	// separate thread.
-    	if (Platform.instance().platformName().contains("Android")) {
-        	
-            // Start an asynchronous task that will make the request
-            // and then post the results on the main UI thread.
-            new AsyncTask<Void, Void, ServerResponse> () {
-                protected ServerResponse doInBackground(Void ... params) {
-                    try {
-                        // Make the service.
-                        ExpressionTreeService service =
-                            makeService("http://10.0.2.2:8080/");
-        				
-                        // Make the request to the server.
-                        return doRequest(service);
-						
-                    } catch (UnsupportedEncodingException e) {
-                        return null;
-                    }
-                }
-        		
-                protected void onPostExecute(ServerResponse response) {
-                    // Parse the response and update the UI
-                    // accordingly.
-                    parseResponse(response);
-                }
-            }.execute();
-    	}
+    	if (Platform.instance().platformName().contains("Android"))
+            // Queue the command, which the client sends after the
+            // earlier ones and whose response it then posts on the
+            // main UI thread.
+            client.commandQueue().submit(mUserCommandString);
+
     	// Otherwise, just do it in the main thread.
     	else {
-            // Make the service.
-            ExpressionTreeService service =
-                makeService("http://localhost:8080/");
-        	
             // Make the request using the provided string and wait for
             // a response.
-            ServerResponse response = doRequest(service);
+            ServerResponse response = doRequest(client);
         	
             // Parse the response
             parseResponse(response);
@@ -80,48 +58,35 @@ public class UserCommandProxy {
     }
 
     /**
-     * Creates a Retrofit adapter to interact with the server.
+     * Runs the user commands on the server in a single request, in
+     * order, and interprets their responses in order.  It blocks
+     * until they're done, so it's meant for the threads of scripted
+     * clients rather than for the UI thread of Android.
      */
-    private ExpressionTreeService makeService(String url) {
-    	// Use Retrofit to build a simple interface to our
-    	// ExpressionTree server.
-    	RestAdapter restAdapter =
-            new RestAdapter.Builder().setEndpoint(url).build();
-    	return restAdapter.create(ExpressionTreeService.class);
+    public static void execute(List<String> userCommandStrings)
+        throws IOException {
+        ExpressionTreeClient client = Platform.instance().client();
+
+        for (ServerResponse response : client.execute(userCommandStrings))
+            parseResponse(response);
     }
-    
+
     /**
-     * Send the command string to the server. 
+     * Send the command string to the server through the @a client.
      */
-    private ServerResponse doRequest(ExpressionTreeService service)
-        throws UnsupportedEncodingException {
-    	
-    	// If we have an ID for this specific session, go ahead and send it along
-    	// with the command string.
-    	if (mClientID != null) 
-            return service.execute(URLEncoder.encode(mUserCommandString,
-                                                     "UTF-8"),
-                                   mClientID);
-    	
-    	// Otherwise, just send the command string, signaling that we need a token for this
-    	// session.
-    	else
-            return service.execute(URLEncoder.encode(mUserCommandString,
-                                                     "UTF-8"));
+    private ServerResponse doRequest(ExpressionTreeClient client)
+        throws IOException {
+        return client.execute(Collections.singletonList(mUserCommandString))
+            .get(0);
     }
-    
+
     /**
      * Interprets the response from the server and reacts
      * appropriately.
      */
-    private void parseResponse(ServerResponse response) {
+    static void parseResponse(ServerResponse response) {
     	// If the result was ok
     	if (response.getResult().toLowerCase().equals("ok")) {
-            // The server might have given us a client ID. If they
-            // did, we should keep it.
-            if (response.clientID != null)
-                mClientID = response.clientID;
-    		
             // The server's output is in the form of calls to the
             // Platform interface.  We have to parse that output and
             // make the corresponding calls.
@@ -129,10 +94,14 @@ public class UserCommandProxy {
                                                response);
     	}
     	// If the result was an exception.
-    	else if (response.getResult().toLowerCase().equals("exception"))
-            // Print the cause of the exception.
+    	else if (response.getResult().toLowerCase().equals("exception")) {
+            // Make the calls of the commands that ran before it, if
+            // any, then print the cause of the exception.
+            PlatformProxyInterpreter.interpret(Platform.instance(),
+                                               response);
             Platform.instance().outputLine("Exception from server: " 
                                            + response.getMessage());
+        }
     }
 	
     /** 
@@ -0,0 +1,139 @@
+package com.example.expressiontree;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+
+import com.example.expressiontree.model.ServerResponse;
+
+/**
+ * @class UserCommandQueue
+ *
+ * @brief Queues the user commands that mustn't block the caller
+ *        (e.g., the UI thread of Android) and runs them on the server
+ *        in the order they were submitted.  A single consumer on the
+ *        executor of the @a ExpressionTreeClient takes the commands
+ *        queued so far and sends them in one request, so the server
+ *        runs them in order in the same session, and the client ID of
+ *        one response is known before the next request.  A binary
+ *        request holds up to @a maxInFlight commands (the "-m" option
+ *        of the @a Options), and a JSON request just one, since JSON
+ *        merges the output of a batch into one response.  The
+ *        responses are handed to the @a Platform in the same order on
+ *        its UI thread.
+ */
+public class UserCommandQueue {
+    /**
+     * The default maximum number of commands in a binary request.
+     */
+    public final static int DEFAULT_MAX_IN_FLIGHT = 8;
+
+    /**
+     * The client the commands are sent through.
+     */
+    private final ExpressionTreeClient mClient;
+
+    /**
+     * The commands waiting to be sent (guarded by this).
+     */
+    private final Queue<String> mPending = new LinkedList<String>();
+
+    /**
+     * Maximum number of commands in a request (guarded by this).
+     */
+    private int mMaxInFlight = DEFAULT_MAX_IN_FLIGHT;
+
+    /**
+     * True while the consumer is scheduled or running (guarded by
+     * this).
+     */
+    private boolean mConsuming = false;
+
+    /**
+     * Sends the pending commands until there are none left.
+     */
+    private final Runnable mConsumer = new Runnable() {
+            public void run() {
+                for (List<String> batch; (batch = takeBatch()) != null; )
+                    send(batch);
+            }
+        };
+
+    /**
+     * Constructor sends the commands through the @a client.
+     */
+    public UserCommandQueue(ExpressionTreeClient client) {
+        mClient = client;
+    }
+
+    /**
+     * Sets the maximum number of commands in a binary request, i.e.,
+     * of commands in flight, which must be at least 1.
+     */
+    public synchronized void maxInFlight(int maxInFlight) {
+        if (maxInFlight < 1)
+            throw new IllegalArgumentException("maxInFlight < 1");
+        mMaxInFlight = maxInFlight;
+    }
+
+    /**
+     * Queue the @a userCommandString, and start the consumer if it
+     * isn't running already.  It returns without waiting for the
+     * server.
+     */
+    public synchronized void submit(String userCommandString) {
+        mPending.add(userCommandString);
+
+        if (!mConsuming) {
+            mClient.executor().execute(mConsumer);
+            mConsuming = true;
+        }
+    }
+
+    /**
+     * Returns the next commands to send, or null after stopping the
+     * consumer if there are none.
+     */
+    private synchronized List<String> takeBatch() {
+        if (mPending.isEmpty()) {
+            mConsuming = false;
+            return null;
+        }
+
+        // JSON merges the output of a batch into one response, with
+        // the menu of its last command only, so only the binary
+        // protocol, with its response per command, has several in
+        // flight.
+        int limit = Options.instance().binaryProtocol() ? mMaxInFlight : 1;
+
+        List<String> batch = new ArrayList<String>();
+        while (!mPending.isEmpty() && batch.size() < limit)
+            batch.add(mPending.remove());
+        return batch;
+    }
+
+    /**
+     * Send the @a batch and post its responses, in order, to the UI
+     * thread of the Platform.
+     */
+    private void send(List<String> batch) {
+        Platform platform = Platform.instance();
+
+        try {
+            for (final ServerResponse response : mClient.execute(batch))
+                platform.runOnUiThread(new Runnable() {
+                        public void run() {
+                            UserCommandProxy.parseResponse(response);
+                        }
+                    });
+        } catch (final Exception e) {
+            // Retrofit reports its failures as RuntimeExceptions.
+            platform.runOnUiThread(new Runnable() {
+                    public void run() {
+                        Platform.instance().outputLine(e.getMessage());
+                    }
+                });
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.example.expressiontree.model;
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
 import java.util.List;
 
 import com.example.expressiontree.model.PlatformCall;
@@ -49,6 +52,38 @@ public class ServerResponse {
      */
     public String message;
 
+    /**
+     * The platform calls of a response of the @a BinaryProtocol,
+     * positioned at their count and still encoded, since
+     * PlatformProxyInterpreter decodes them as it makes them.  Null
+     * for a JSON response.
+     */
+    public transient DataInputStream encodedPlatformCalls;
+
+    /**
+     * Reads a response frame of the @a BinaryProtocol from @a in, or
+     * returns null if the stream ends before it.
+     */
+    public static ServerResponse readBinary(DataInputStream in)
+        throws IOException {
+        byte[] frame = BinaryProtocol.readFrame(in, Integer.MAX_VALUE);
+        if (frame == null)
+            return null;
+
+        DataInputStream payload =
+            new DataInputStream(new ByteArrayInputStream(frame));
+        ServerResponse response = new ServerResponse();
+
+        response.result = BinaryProtocol.result(payload.readByte());
+        long clientID = payload.readLong();
+        if (clientID != BinaryProtocol.NO_CLIENT_ID)
+            response.clientID = clientID;
+        response.message = BinaryProtocol.readString(payload);
+        response.encodedPlatformCalls = payload;
+
+        return response;
+    }
+
     /**
      * A getter for the message
      */
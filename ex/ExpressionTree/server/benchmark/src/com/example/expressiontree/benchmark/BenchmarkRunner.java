@@ -0,0 +1,37 @@
+package com.example.expressiontree.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * @class BenchmarkRunner
+ *
+ * @brief Runs the JMH benchmarks of the server core and writes the
+ *        results as JSON to "jmh-result.json", so runs can be
+ *        compared to catch regressions.  Any JMH command-line options
+ *        (e.g., "-f 1 -prof gc InterpreterBenchmark") are passed
+ *        through.
+ */
+public class BenchmarkRunner {
+    /** File the results are written to. */
+    public final static String RESULT_FILE = "jmh-result.json";
+
+    public static void main(String[] argv) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(argv);
+
+        Options options = new OptionsBuilder()
+            .parent(commandLine)
+            .include(BenchmarkRunner.class.getPackage().getName() + "\\..*Benchmark")
+            .resultFormat(ResultFormatType.JSON)
+            .result(RESULT_FILE)
+            /** The forked JVMs need to find the corpus too. */
+            .jvmArgsAppend("-D" + Corpus.DIRECTORY_PROPERTY + "="
+                           + Corpus.directory().getAbsolutePath())
+            .build();
+
+        new Runner(options).run();
+    }
+}
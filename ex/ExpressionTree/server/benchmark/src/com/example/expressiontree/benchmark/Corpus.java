@@ -0,0 +1,59 @@
+package com.example.expressiontree.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * @class Corpus
+ *
+ * @brief Loads the expressions the benchmarks run on from the corpus
+ *        files written by the @a CorpusGenerator.  Each file holds
+ *        one expression per line.
+ */
+public class Corpus {
+    /** 
+     * The system property that names the directory holding the
+     * corpus files.
+     */
+    public final static String DIRECTORY_PROPERTY = "expressiontree.corpus";
+
+    /** Default corpus directory, relative to the server project. */
+    public final static String DEFAULT_DIRECTORY = "benchmark/corpus";
+
+    /** Short expressions, like the ones users type. */
+    public final static String SMALL = "small";
+
+    /** Expressions with thousands of operators. */
+    public final static String LARGE = "large";
+
+    /** Expressions with deeply nested parentheses. */
+    public final static String NESTED = "nested";
+
+    /** Expressions that repeat their subexpressions many times. */
+    public final static String SHARED = "shared";
+
+    /** Returns the directory holding the corpus files. */
+    public static File directory() {
+        return new File(System.getProperty(DIRECTORY_PROPERTY,
+                                           DEFAULT_DIRECTORY));
+    }
+
+    /** Returns the expressions in the corpus file named @a name. */
+    public static String[] load(String name) {
+        File file = new File(directory(), name + ".txt");
+
+        try {
+            List<String> lines =
+                Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+            return lines.toArray(new String[lines.size()]);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to read corpus "
+                                            + file.getAbsolutePath()
+                                            + "; run CorpusGenerator first",
+                                            e);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.expressiontree.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * @class CorpusGenerator
+ *
+ * @brief Writes the corpus files the benchmarks run on.  The output
+ *        only depends on @a SEED, so regenerating the corpus yields
+ *        the same files and results stay comparable across runs.
+ *        The expressions only use the variables "x", "y", and "z",
+ *        which the benchmarks bind to nonzero values, and never
+ *        divide by a literal zero.
+ */
+public class CorpusGenerator {
+    /** Seed of the generator. */
+    public final static long SEED = 251;
+
+    /** Number of expressions in the small corpus. */
+    private final static int SMALL_COUNT = 1000;
+
+    /** Number of expressions in the large and nested corpora. */
+    private final static int LARGE_COUNT = 20;
+
+    /** Number of operators in each large expression. */
+    private final static int LARGE_OPERATORS = 2000;
+
+    /** Greatest nesting depth of the nested expressions. */
+    private final static int MAX_DEPTH = 1000;
+
+    /** Number of expressions in the shared corpus. */
+    private final static int SHARED_COUNT = 200;
+
+    /** Number of levels of each shared expression. */
+    private final static int SHARED_LEVELS = 10;
+
+    /** The binary operators. */
+    private final static char[] OPERATORS = { '+', '-', '*', '/' };
+
+    /** The variables. */
+    private final static String[] VARIABLES = { "x", "y", "z" };
+
+    /** The source of randomness. */
+    private final Random random = new Random(SEED);
+
+    /** 
+     * Write the corpus into the directory named by @a argv[0], or
+     * into the default corpus directory if there's no argument.
+     */
+    public static void main(String[] argv) throws IOException {
+        File directory = argv.length > 0
+            ? new File(argv[0])
+            : Corpus.directory();
+        directory.mkdirs();
+
+        new CorpusGenerator().generate(directory);
+    }
+
+    /** Write all the corpus files into @a directory. */
+    public void generate(File directory) throws IOException {
+        try (PrintWriter out = writer(directory, Corpus.SMALL)) {
+            for (int i = 0; i < SMALL_COUNT; ++i)
+                out.println(expression(2 + random.nextInt(9)));
+        }
+
+        try (PrintWriter out = writer(directory, Corpus.LARGE)) {
+            for (int i = 0; i < LARGE_COUNT; ++i)
+                out.println(expression(LARGE_OPERATORS));
+        }
+
+        try (PrintWriter out = writer(directory, Corpus.NESTED)) {
+            for (int i = 0; i < LARGE_COUNT; ++i)
+                out.println(nested(MAX_DEPTH * (i + 1) / LARGE_COUNT,
+                                   i % 2 == 0));
+        }
+
+        try (PrintWriter out = writer(directory, Corpus.SHARED)) {
+            for (int i = 0; i < SHARED_COUNT; ++i)
+                out.println(shared(SHARED_LEVELS));
+        }
+    }
+
+    /** Returns a writer for the corpus file named @a name. */
+    private static PrintWriter writer(File directory, String name)
+        throws IOException {
+        return new PrintWriter(new File(directory, name + ".txt"),
+                               StandardCharsets.UTF_8.name());
+    }
+
+    /** 
+     * Returns an expression with @a operators binary operators, some
+     * parenthesized groups, and some negations.
+     */
+    private String expression(int operators) {
+        StringBuilder expression = new StringBuilder();
+        int open = 0;
+
+        operand(expression);
+        for (int i = 0; i < operators; ++i) {
+            char operator = OPERATORS[random.nextInt(OPERATORS.length)];
+            expression.append(operator);
+
+            if (open > 0 && random.nextInt(6) == 0) {
+                operand(expression);
+                expression.append(')');
+                --open;
+            } else if (random.nextInt(8) == 0) {
+                expression.append('(');
+                ++open;
+                operand(expression);
+            } else
+                operand(expression);
+        }
+
+        while (open-- > 0)
+            expression.append(')');
+
+        return expression.toString();
+    }
+
+    /** Append a possibly negated nonzero number or variable. */
+    private void operand(StringBuilder expression) {
+        if (random.nextInt(10) == 0)
+            expression.append('-');
+
+        if (random.nextBoolean())
+            expression.append(VARIABLES[random.nextInt(VARIABLES.length)]);
+        else
+            expression.append(1 + random.nextInt(99));
+    }
+
+    /** 
+     * Returns an expression of @a levels levels, each of which
+     * usually combines the expression of the level below with
+     * itself, e.g., "((x+2)*(x+2))-((x+2)*(x+2))", so its text (but
+     * not its number of distinct subexpressions) doubles with every
+     * level.  It never divides, so it can't divide by zero.
+     */
+    private String shared(int levels) {
+        StringBuilder operand = new StringBuilder();
+        operand(operand);
+        String expression = operand.toString();
+
+        for (int level = 0; level < levels; ++level) {
+            String right = expression;
+            if (random.nextInt(4) == 0) {
+                operand.setLength(0);
+                operand(operand);
+                right = operand.toString();
+            }
+            expression = "(" + expression
+                + OPERATORS[random.nextInt(OPERATORS.length - 1)]
+                + right + ")";
+        }
+
+        return expression;
+    }
+
+    /** 
+     * Returns an expression whose parentheses nest @a depth deep,
+     * either on the left, e.g., "((x+1)*2)-3", or on the right, e.g.,
+     * "1+(2*(3-x))".
+     */
+    private String nested(int depth, boolean left) {
+        StringBuilder expression = new StringBuilder();
+
+        if (left) {
+            for (int i = 0; i < depth; ++i)
+                expression.append('(');
+            operand(expression);
+            for (int i = 0; i < depth; ++i) {
+                expression.append(OPERATORS[i % 3]);
+                operand(expression);
+                expression.append(')');
+            }
+        } else {
+            for (int i = 0; i < depth; ++i) {
+                operand(expression);
+                expression.append(OPERATORS[i % 3]).append('(');
+            }
+            operand(expression);
+            for (int i = 0; i < depth; ++i)
+                expression.append(')');
+        }
+
+        return expression.toString();
+    }
+}
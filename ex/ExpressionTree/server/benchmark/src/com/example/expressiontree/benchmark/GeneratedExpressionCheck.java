@@ -0,0 +1,103 @@
+package com.example.expressiontree.benchmark;
+
+import com.example.expressiontree.server.Interpreter;
+import com.example.expressiontree.server.PlatformProxy;
+import com.example.expressiontree.server.TreeOps;
+
+/**
+ * @class GeneratedExpressionCheck
+ *
+ * @brief Checks the JVM classes generated for compiled expressions
+ *        against the @a EvaluationVisitor, which stays the reference.
+ *        Every expression of the corpus is evaluated "compiled" with
+ *        a generate threshold of 0, so it runs through its generated
+ *        @a IntExpression (or the @a ExpressionProgram it falls back
+ *        to), and "post-order", under several bindings of the
+ *        variables, some of which divide by zero.  The totals and the
+ *        division-by-zero logs reaped from the @a PlatformProxy must
+ *        be identical.  Any corpus names given on the command line
+ *        replace the default ones.  It exits with status 1 if there's
+ *        a mismatch.
+ */
+public class GeneratedExpressionCheck {
+    /** The corpora checked by default. */
+    public final static String[] CORPORA = {
+        Corpus.SMALL, Corpus.LARGE, Corpus.NESTED, Corpus.SHARED
+    };
+
+    /**
+     * The values of "x", "y", and "z" the expressions are evaluated
+     * with, which include zeros to divide by and the extremes of the
+     * int range to overflow.
+     */
+    private final static int[][] BINDINGS = {
+        { 7, 3, -5 },
+        { 0, 0, 0 },
+        { 1, -1, 0 },
+        { Integer.MAX_VALUE, Integer.MIN_VALUE, -1 },
+    };
+
+    /** Maximum number of mismatches that are printed. */
+    private final static int MAX_REPORTED = 10;
+
+    public static void main(String[] argv) throws Exception {
+        String[] corpora = argv.length > 0 ? argv : CORPORA;
+        PlatformProxy platform = new PlatformProxy();
+        int evaluations = 0;
+        int mismatches = 0;
+
+        for (String corpus : corpora)
+            for (String expression : Corpus.load(corpus)) {
+                TreeOps generated = makeTreeOps(expression, 0);
+                TreeOps reference = makeTreeOps(expression, -1);
+
+                for (int[] binding : BINDINGS) {
+                    bind(generated, binding);
+                    bind(reference, binding);
+
+                    generated.evaluate("compiled", platform);
+                    String actual = platform.reap().toJson();
+                    reference.evaluate("post-order", platform);
+                    String expected = platform.reap().toJson();
+
+                    ++evaluations;
+                    if (!actual.equals(expected)
+                        && ++mismatches <= MAX_REPORTED)
+                        System.out.println(corpus + ": " + expression
+                                           + "\n  compiled:   " + actual
+                                           + "\n  post-order: " + expected);
+                }
+            }
+
+        System.out.println(evaluations + " evaluations, "
+                           + mismatches + " mismatches");
+        if (mismatches > 0)
+            System.exit(1);
+    }
+
+    /**
+     * Returns a @a TreeOps holding the tree of @a expression, which
+     * generates its class after @a threshold runs.  Totals aren't
+     * memoized, so every evaluation runs.
+     */
+    private static TreeOps makeTreeOps(String expression, int threshold)
+        throws Exception {
+        TreeOps treeOps = new TreeOps(new Interpreter());
+        treeOps.memoizeTotals(false);
+        treeOps.generateThreshold(threshold);
+        treeOps.format("in-order");
+        treeOps.set("x=0");
+        treeOps.set("y=0");
+        treeOps.set("z=0");
+        treeOps.makeTree(expression);
+        return treeOps;
+    }
+
+    /** Set "x", "y", and "z" of @a treeOps to the @a binding. */
+    private static void bind(TreeOps treeOps, int[] binding)
+        throws Exception {
+        treeOps.set("x=" + binding[0]);
+        treeOps.set("y=" + binding[1]);
+        treeOps.set("z=" + binding[2]);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.expressiontree.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.example.expressiontree.server.ExpressionTree;
+import com.example.expressiontree.server.Interpreter;
+import com.example.expressiontree.server.ParseTreeCache;
+import com.example.expressiontree.server.ShuntingYardInterpreter;
+
+/**
+ * @class InterpreterBenchmark
+ *
+ * @brief Measures how long @a Interpreter.interpret() takes to turn
+ *        an expression from the corpus into an @a ExpressionTree,
+ *        with either parser, and how long a @a ParseTreeCache that
+ *        already holds every expression of the corpus takes instead.
+ *        The @a NestingBenchmark covers nesting deeper than the
+ *        corpus does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class InterpreterBenchmark {
+    /** The corpus the expressions come from. */
+    @Param({ Corpus.SMALL, Corpus.LARGE, Corpus.NESTED })
+    public String corpus;
+
+    /** 
+     * The parser, i.e., "recursive" for the @a Interpreter or
+     * "iterative" for the @a ShuntingYardInterpreter.
+     */
+    @Param({ "recursive", "iterative" })
+    public String parser;
+
+    /** The expressions. */
+    private String[] expressions;
+
+    /** Index of the next expression to interpret. */
+    private int next;
+
+    /** The interpreter under test. */
+    private Interpreter interpreter;
+
+    /** A cache that holds the trees of all the expressions. */
+    private ParseTreeCache cache;
+
+    @Setup
+    public void setUp() {
+        expressions = Corpus.load(corpus);
+        interpreter = parser.equals("iterative")
+            ? new ShuntingYardInterpreter()
+            : new Interpreter();
+
+        cache = parser.equals("iterative")
+            ? new ParseTreeCache(Long.MAX_VALUE, ShuntingYardInterpreter::new)
+            : new ParseTreeCache(Long.MAX_VALUE, Interpreter::new);
+        for (String expression : expressions)
+            cache.interpret(expression, interpreter);
+    }
+
+    /** Interpret the next expression of the corpus. */
+    @Benchmark
+    public ExpressionTree interpret() {
+        String expression = expressions[next];
+        next = (next + 1) % expressions.length;
+        return interpreter.interpret(expression);
+    }
+
+    /** 
+     * Look up the tree of the next expression of the corpus in the
+     * cache, which rebinds its variables to the interpreter's.
+     */
+    @Benchmark
+    public ExpressionTree interpretCached() {
+        String expression = expressions[next];
+        next = (next + 1) % expressions.length;
+        return cache.interpret(expression, interpreter);
+    }
+}
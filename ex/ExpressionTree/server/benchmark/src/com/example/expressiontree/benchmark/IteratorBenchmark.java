@@ -0,0 +1,61 @@
+package com.example.expressiontree.benchmark;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.example.expressiontree.server.ExpressionTree;
+import com.example.expressiontree.server.Interpreter;
+
+/**
+ * @class IteratorBenchmark
+ *
+ * @brief Measures each traversal order of the @a IteratorFactory over
+ *        the trees of the large corpus.  Run it with "-prof gc" to see
+ *        the allocation rate of the iterators.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IteratorBenchmark {
+    /** The traversal order. */
+    @Param({ "in-order", "pre-order", "post-order", "level-order" })
+    public String order;
+
+    /** The trees to traverse. */
+    private ExpressionTree[] trees;
+
+    /** Index of the next tree to traverse. */
+    private int next;
+
+    @Setup
+    public void setUp() {
+        String[] expressions = Corpus.load(Corpus.LARGE);
+        Interpreter interpreter = new Interpreter();
+
+        trees = new ExpressionTree[expressions.length];
+        for (int i = 0; i < expressions.length; ++i)
+            trees[i] = interpreter.interpret(expressions[i]);
+    }
+
+    /** Visit every node of the next tree. */
+    @Benchmark
+    public void traverse(Blackhole blackhole) {
+        ExpressionTree tree = trees[next];
+        next = (next + 1) % trees.length;
+
+        for (Iterator<ExpressionTree> it = tree.makeIterator(order);
+             it.hasNext();
+             )
+            blackhole.consume(it.next());
+    }
+}
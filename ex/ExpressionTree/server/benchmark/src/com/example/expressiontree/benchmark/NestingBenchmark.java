@@ -0,0 +1,86 @@
+package com.example.expressiontree.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.example.expressiontree.server.ExpressionTree;
+import com.example.expressiontree.server.Interpreter;
+import com.example.expressiontree.server.ShuntingYardInterpreter;
+
+/**
+ * @class NestingBenchmark
+ *
+ * @brief Measures how long @a Interpreter.interpret() takes to turn
+ *        an expression nested @a depth levels deep into an @a
+ *        ExpressionTree, with either parser, for depths well past
+ *        the @a Corpus.NESTED expressions.  The recursive parser
+ *        overflows the thread stack somewhere between 1,000 and
+ *        10,000 levels (depending on -Xss), so its runs that overflow
+ *        fail in setup, which JMH reports, rather than being
+ *        measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class NestingBenchmark {
+    /** The number of nested levels. */
+    @Param({ "10", "100", "1000", "10000", "100000" })
+    public int depth;
+
+    /**
+     * The shape of the expression, i.e., "parens" for "((...1...))"
+     * or "sums" for "1+(1+(...1...))".
+     */
+    @Param({ "parens", "sums" })
+    public String shape;
+
+    /**
+     * The parser, i.e., "recursive" for the @a Interpreter or
+     * "iterative" for the @a ShuntingYardInterpreter.
+     */
+    @Param({ "recursive", "iterative" })
+    public String parser;
+
+    /** The expression. */
+    private String expression;
+
+    /** The interpreter under test. */
+    private Interpreter interpreter;
+
+    @Setup
+    public void setUp() {
+        StringBuilder builder = new StringBuilder();
+        for (int level = 0; level < depth; ++level)
+            builder.append(shape.equals("sums") ? "1+(" : "(");
+        builder.append('1');
+        for (int level = 0; level < depth; ++level)
+            builder.append(')');
+        expression = builder.toString();
+
+        interpreter = parser.equals("iterative")
+            ? new ShuntingYardInterpreter()
+            : new Interpreter();
+
+        try {
+            interpreter.interpret(expression);
+        } catch (StackOverflowError e) {
+            throw new IllegalStateException("The " + parser
+                                            + " parser overflows the stack at depth "
+                                            + depth);
+        }
+    }
+
+    /** Interpret the nested expression. */
+    @Benchmark
+    public ExpressionTree interpret() {
+        return interpreter.interpret(expression);
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.expressiontree.benchmark;
+
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.example.expressiontree.model.PlatformCall;
+import com.example.expressiontree.model.ServerResponse;
+import com.example.expressiontree.server.PlatformProxy;
+import com.example.expressiontree.server.TreeOps;
+import com.example.expressiontree.server.UserCommand;
+import com.example.expressiontree.server.UserCommandFactory;
+
+/**
+ * @class ServerResponseBenchmark
+ *
+ * @brief Measures @a ServerResponse.toJson() and the streaming
+ *        @a ServerResponse.writeJson(), plain and through gzip, on the
+ *        responses the servlet sends back for "print" commands, which
+ *        consist of one platform call per node followed by the menu.
+ *        With @a calls set, every response repeats its platform calls
+ *        until it has that many.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ServerResponseBenchmark {
+    /** The corpus the expressions come from. */
+    @Param({ Corpus.SMALL, Corpus.LARGE })
+    public String corpus;
+
+    /**
+     * Number of platform calls per response, or 0 for as many as
+     * the "print" command makes.
+     */
+    @Param({ "0", "10000" })
+    public int calls;
+
+    /** The responses to convert. */
+    private ServerResponse[] responses;
+
+    /** Index of the next response to convert. */
+    private int next;
+
+    /** The writer the responses are streamed to. */
+    private final CharArrayWriter writer = new CharArrayWriter();
+
+    /** Discards the compressed responses. */
+    private final OutputStream sink = new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        };
+
+    @Setup
+    public void setUp() throws Exception {
+        PlatformProxy platform = new PlatformProxy();
+
+        String[] expressions = Corpus.load(corpus);
+        responses = new ServerResponse[expressions.length];
+
+        for (int i = 0; i < expressions.length; ++i) {
+            UserCommandFactory factory =
+                new UserCommandFactory(new TreeOps());
+            factory.makeUserCommand("format in-order").execute(platform);
+            factory.makeUserCommand("expr " + expressions[i])
+                .execute(platform);
+            platform.reap();
+
+            UserCommand print = factory.makeUserCommand("print in-order");
+            print.execute(platform);
+            print.printValidCommands(true, platform);
+            responses[i] = platform.reap();
+            responses[i].setID((long) i);
+
+            if (calls > 0) {
+                List<PlatformCall> made = responses[i].platformCalls;
+                List<PlatformCall> repeated = new ArrayList<>(calls);
+                for (int k = 0; k < calls; ++k)
+                    repeated.add(made.get(k % made.size()));
+                responses[i].platformCalls = repeated;
+            }
+        }
+    }
+
+    /** Convert the next response to JSON. */
+    @Benchmark
+    public String toJson() {
+        ServerResponse response = responses[next];
+        next = (next + 1) % responses.length;
+        return response.toJson();
+    }
+
+    /** Stream the next response as JSON to a reused writer. */
+    @Benchmark
+    public int writeJson() throws IOException {
+        ServerResponse response = responses[next];
+        next = (next + 1) % responses.length;
+        writer.reset();
+        response.writeJson(writer);
+        return writer.size();
+    }
+
+    /**
+     * Stream the next response as JSON through gzip, as the servlet
+     * does for clients that accept it.
+     */
+    @Benchmark
+    public void writeJsonGzip() throws IOException {
+        ServerResponse response = responses[next];
+        next = (next + 1) % responses.length;
+        Writer out = new OutputStreamWriter(new GZIPOutputStream(sink, 8192),
+                                            StandardCharsets.US_ASCII);
+        response.writeJson(out);
+        out.close();
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.expressiontree.benchmark;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.reflect.Proxy;
+import java.net.URLEncoder;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import com.example.expressiontree.server.ServerInputHandler;
+
+/**
+ * @class ServletBenchmark
+ *
+ * @brief A load test of the @a ServerInputHandler, run in-process
+ *        with requests and responses that stand in for the
+ *        container's.  Every thread plays a few clients, which send
+ *        "eval post-order" and "print in-order" commands for their
+ *        expressions, and waits for each response before sending the
+ *        next request, as the client does.  The @a mode parameter
+ *        compares the synchronous handler with the async one on
+ *        either executor, and the sample-time mode reports the
+ *        percentiles (e.g., p99) of the request latency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(8)
+public class ServletBenchmark {
+    /** "sync", or the executor of the async mode. */
+    @Param({ "sync", "pool", "virtual" })
+    public String mode;
+
+    /** The corpus the expressions of the clients come from. */
+    @Param({ Corpus.SMALL })
+    public String corpus;
+
+    /** The servlet under test. */
+    private ServerInputHandler handler;
+
+    /** The expressions the clients work on. */
+    private String[] expressions;
+
+    @Setup
+    public void setUp() throws Exception {
+        expressions = Corpus.load(corpus);
+
+        Map<String, String> parameters = new HashMap<>();
+        if (!mode.equals("sync"))
+            parameters.put("async", mode);
+
+        handler = new ServerInputHandler() {
+            @Override
+            public String getInitParameter(String name) {
+                return parameters.get(name);
+            }
+
+            @Override
+            public void log(String message) {
+            }
+
+            @Override
+            public void log(String message, Throwable t) {
+            }
+        };
+        handler.init();
+    }
+
+    @TearDown
+    public void tearDown() {
+        handler.destroy();
+    }
+
+    /**
+     * @class Clients
+     *
+     * @brief The clients played by one thread.
+     */
+    @State(Scope.Thread)
+    public static class Clients {
+        /** Number of clients each thread plays. */
+        private final static int CLIENTS = 4;
+
+        /** The ID of each client. */
+        private final String[] ids = new String[CLIENTS];
+
+        /** Index of the client that sends the next request. */
+        private int next;
+
+        @Setup
+        public void setUp(ServletBenchmark benchmark) throws Exception {
+            for (int i = 0; i < CLIENTS; ++i) {
+                String expression = benchmark.expressions
+                    [(int) (Thread.currentThread().getId() * CLIENTS + i)
+                     % benchmark.expressions.length];
+                ids[i] = id(benchmark.request("format in-order", null));
+                benchmark.request("expr " + expression, ids[i]);
+            }
+        }
+    }
+
+    /**
+     * Send the next command of the next client and wait for the
+     * response.
+     */
+    @Benchmark
+    public String request(Clients clients) throws Exception {
+        int client = clients.next++ % Clients.CLIENTS;
+        return request(client % 2 == 0 ? "eval post-order" : "print in-order",
+                       clients.ids[client]);
+    }
+
+    /**
+     * Send @a input with the client ID @a id (if not null), and return
+     * the body of the response once it's complete.
+     */
+    private String request(String input, String id) throws Exception {
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("input", URLEncoder.encode(input, "UTF-8"));
+        if (id != null)
+            parameters.put("clientID", id);
+
+        StringWriter body = new StringWriter();
+        AtomicBoolean async = new AtomicBoolean();
+        CountDownLatch completed = new CountDownLatch(1);
+
+        handler.service(request(parameters, async, completed),
+                        response(body));
+
+        // A synchronous request is complete once service() returns.
+        if (async.get())
+            completed.await();
+        return body.toString();
+    }
+
+    /**
+     * Make a GET request with the given @a parameters, which sets
+     * @a async if it's suspended and counts down @a completed once
+     * it's complete.
+     */
+    private static HttpServletRequest request(Map<String, String> parameters,
+                                              AtomicBoolean async,
+                                              CountDownLatch completed) {
+        AsyncContext context = (AsyncContext) Proxy.newProxyInstance
+            (AsyncContext.class.getClassLoader(),
+             new Class<?>[] { AsyncContext.class },
+             (proxy, method, args) -> {
+                if (method.getName().equals("complete"))
+                    completed.countDown();
+                return null;
+            });
+
+        return (HttpServletRequest) Proxy.newProxyInstance
+            (HttpServletRequest.class.getClassLoader(),
+             new Class<?>[] { HttpServletRequest.class },
+             (proxy, method, args) -> {
+                switch (method.getName()) {
+                case "getMethod":
+                    return "GET";
+                case "getParameter":
+                    return parameters.get(args[0]);
+                case "getParameterValues":
+                    return parameters.containsKey(args[0])
+                        ? new String[] { parameters.get(args[0]) }
+                        : null;
+                case "isAsyncSupported":
+                    return true;
+                case "startAsync":
+                    async.set(true);
+                    return context;
+                default:
+                    return null;
+                }
+            });
+    }
+
+    /**
+     * Make a response that writes its body to @a body.
+     */
+    private static HttpServletResponse response(Writer body) {
+        PrintWriter writer = new PrintWriter(body);
+
+        return (HttpServletResponse) Proxy.newProxyInstance
+            (HttpServletResponse.class.getClassLoader(),
+             new Class<?>[] { HttpServletResponse.class },
+             (proxy, method, args) -> {
+                switch (method.getName()) {
+                case "getWriter":
+                    return writer;
+                case "flushBuffer":
+                    writer.flush();
+                    return null;
+                default:
+                    return null;
+                }
+            });
+    }
+
+    /**
+     * Extract the client ID from the @a body of a response.
+     */
+    private static String id(String body) {
+        int start = body.indexOf(':', body.indexOf("clientID")) + 1;
+        int end = start;
+        while (end < body.length()
+               && (Character.isDigit(body.charAt(end))
+                   || body.charAt(end) == ' '))
+            ++end;
+        return body.substring(start, end).trim();
+    }
+}
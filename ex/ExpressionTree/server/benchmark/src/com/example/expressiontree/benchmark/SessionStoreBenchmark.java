@@ -0,0 +1,82 @@
+package com.example.expressiontree.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import com.example.expressiontree.server.SessionStore;
+import com.example.expressiontree.server.TreeOps;
+import com.example.expressiontree.server.UserCommandFactory;
+
+/**
+ * @class SessionStoreBenchmark
+ *
+ * @brief A multi-threaded load generator for the @a SessionStore the
+ *        servlet keeps its clients in.  Every thread plays many
+ *        clients, each of which looks up its session with the ID of
+ *        one of the @a maxSessions most recent sessions, and starts a
+ *        new session if that one is gone, as the servlet does.
+ *        Some of the clients are new, so the store is kept at its
+ *        maximum and evicts the least recently used sessions as it
+ *        goes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(4)
+public class SessionStoreBenchmark {
+    /** The maximum number of sessions in the store. */
+    @Param({ "1000", "100000" })
+    public int maxSessions;
+
+    /** Percentage of the requests that come from new clients. */
+    @Param({ "1", "10" })
+    public int newClientPercent;
+
+    /** The store under test. */
+    private SessionStore store;
+
+    /**
+     * The state of every new client, shared so the benchmark doesn't
+     * measure making a @a TreeOps.
+     */
+    private UserCommandFactory factory;
+
+    @Setup
+    public void setUp() {
+        store = new SessionStore(SessionStore.DEFAULT_IDLE_TIMEOUT_MILLIS,
+                                 maxSessions);
+        factory = new UserCommandFactory(new TreeOps());
+
+        for (int i = 0; i < maxSessions; ++i)
+            store.account(store.create(factory), i);
+    }
+
+    /**
+     * Handle the session side of one request, i.e., look up (or
+     * create) the session and account for its size afterwards.
+     */
+    @Benchmark
+    public SessionStore.Session request() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        SessionStore.Session session = null;
+
+        if (random.nextInt(100) >= newClientPercent)
+            session = store.get(store.created() - 1
+                                - random.nextInt(maxSessions));
+        if (session == null)
+            session = store.create(factory);
+
+        store.account(session, random.nextInt(4096));
+        return session;
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.expressiontree.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.example.expressiontree.model.ServerResponse;
+import com.example.expressiontree.server.ExpressionTreeFactory;
+import com.example.expressiontree.server.Interpreter;
+import com.example.expressiontree.server.InterningExpressionTreeFactory;
+import com.example.expressiontree.server.PlatformProxy;
+import com.example.expressiontree.server.TreeOps;
+
+/**
+ * @class TreeOpsBenchmark
+ *
+ * @brief Measures evaluating and printing the trees of the corpus
+ *        through @a TreeOps, i.e., through @a State.evaluateTree()
+ *        with the @a EvaluationVisitor, the compiled program, and @a
+ *        State.printTree() with the @a PrintVisitor, for plain trees
+ *        and for trees whose identical subtrees are interned, with
+ *        and without memoizing the evaluated totals.  The output is
+ *        reaped from the @a PlatformProxy after every operation, as
+ *        the servlet does after every command.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TreeOpsBenchmark {
+    /** The corpus the expressions come from. */
+    @Param({ Corpus.SMALL, Corpus.LARGE, Corpus.SHARED })
+    public String corpus;
+
+    /** 
+     * How the trees are stored: "plain" or "interned" (with the @a
+     * InterningExpressionTreeFactory).
+     */
+    @Param({ "plain", "interned" })
+    public String tree;
+
+    /** 
+     * Whether @a TreeOps memoizes evaluated totals, in which case
+     * every evaluation after the first of a tree is a memo hit.
+     */
+    @Param({ "false", "true" })
+    public boolean memoize;
+
+    /** One @a TreeOps per expression, each holding its tree. */
+    private TreeOps[] treeOps;
+
+    /** Index of the next tree to use. */
+    private int next;
+
+    /** The platform that collects the output. */
+    private PlatformProxy platform;
+
+    @Setup
+    public void setUp() throws Exception {
+        platform = new PlatformProxy();
+
+        String[] expressions = Corpus.load(corpus);
+        treeOps = new TreeOps[expressions.length];
+
+        for (int i = 0; i < expressions.length; ++i) {
+            ExpressionTreeFactory factory = tree.equals("interned")
+                ? new InterningExpressionTreeFactory()
+                : new ExpressionTreeFactory();
+            treeOps[i] = new TreeOps(new Interpreter(factory));
+            treeOps[i].memoizeTotals(memoize);
+            treeOps[i].format("in-order");
+            treeOps[i].set("x=7");
+            treeOps[i].set("y=3");
+            treeOps[i].set("z=-5");
+            treeOps[i].makeTree(expressions[i]);
+        }
+        platform.reap();
+    }
+
+    /** Returns the @a TreeOps holding the next tree. */
+    private TreeOps nextTreeOps() {
+        TreeOps ops = treeOps[next];
+        next = (next + 1) % treeOps.length;
+        return ops;
+    }
+
+    /** Evaluate the next tree with the @a EvaluationVisitor. */
+    @Benchmark
+    public ServerResponse evaluate() {
+        nextTreeOps().evaluate("post-order", platform);
+        return platform.reap();
+    }
+
+    /** Evaluate the next tree with its compiled program. */
+    @Benchmark
+    public ServerResponse evaluateCompiled() {
+        nextTreeOps().evaluate("compiled", platform);
+        return platform.reap();
+    }
+
+    /** Print the next tree in-order with the @a PrintVisitor. */
+    @Benchmark
+    public ServerResponse print() {
+        nextTreeOps().print("in-order", platform);
+        return platform.reap();
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.expressiontree.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * @class BinaryProtocol
+ *
+ * @brief The compact alternative to the JSON messages exchanged by
+ *        the client and the server.  Every message is a frame, i.e.,
+ *        a 4-byte length followed by that many bytes of payload, so
+ *        frames can follow each other in a POST body or on a socket.
+ *
+ *        A request frame holds the client ID (or @a NO_CLIENT_ID) as
+ *        a long, followed by the command as a string.
+ *
+ *        A response frame holds the result code as a byte, the client
+ *        ID (or @a NO_CLIENT_ID) as a long, the message (or null) as a
+ *        string, the number of platform calls as an int, and the
+ *        calls.  Every call is the byte ID of the Platform function
+ *        followed by its parameters: strings, except for the boolean
+ *        of disableAll.
+ *
+ *        Strings are the number of their UTF-8 bytes plus one (or 0
+ *        for null), as a varint of 7 bits per byte with the high bit
+ *        set on all but the last, followed by the bytes.  Everything
+ *        else is big-endian, as @a DataOutput writes it.
+ *
+ *        Note: The client has a copy of this class, so keep the two
+ *        in sync.
+ */
+public class BinaryProtocol {
+    /**
+     * The content type of the requests and responses.
+     */
+    public final static String CONTENT_TYPE =
+        "application/x-expressiontree";
+
+    /**
+     * The client ID of a client that doesn't have one yet.
+     */
+    public final static long NO_CLIENT_ID = -1;
+
+    /**
+     * The result codes, and the results of the JSON messages they
+     * stand for.
+     */
+    public final static byte RESULT_OK = 0;
+    public final static byte RESULT_MALFORMED = 1;
+    public final static byte RESULT_EXCEPTION = 2;
+    public final static byte RESULT_BUSY = 3;
+
+    private final static String[] RESULTS = {
+        "ok", "malformed", "exception", "busy"
+    };
+
+    /**
+     * The IDs of the Platform functions, and the names of the
+     * functions they stand for.
+     */
+    public final static byte OUTPUT_LINE = 0;
+    public final static byte OUTPUT_STRING = 1;
+    public final static byte OUTPUT_MENU = 2;
+    public final static byte ENABLE_OPTION = 3;
+    public final static byte DISABLE_ALL = 4;
+    public final static byte ADD_STRING = 5;
+    public final static byte ERROR_LOG = 6;
+
+    private final static String[] FUNCTIONS = {
+        "outputLine", "outputString", "outputMenu", "enableOption",
+        "disableAll", "addString", "errorLog"
+    };
+
+    /**
+     * Returns the code of the @a result, or -1 if there's none.
+     */
+    public static byte resultCode(String result) {
+        return indexOf(RESULTS, result);
+    }
+
+    /**
+     * Returns the result the @a code stands for.
+     */
+    public static String result(byte code) throws IOException {
+        if (code < 0 || code >= RESULTS.length)
+            throw new IOException("Unknown result code " + code);
+        return RESULTS[code];
+    }
+
+    /**
+     * Returns the ID of the Platform function called @a fname, or -1
+     * if there's none.
+     */
+    public static byte functionId(String fname) {
+        return indexOf(FUNCTIONS, fname);
+    }
+
+    /**
+     * Returns the name of the Platform function the @a id stands for.
+     */
+    public static String function(byte id) throws IOException {
+        if (id < 0 || id >= FUNCTIONS.length)
+            throw new IOException("Unknown function ID " + id);
+        return FUNCTIONS[id];
+    }
+
+    /**
+     * Returns the index of @a name in @a names, or -1.
+     */
+    private static byte indexOf(String[] names, String name) {
+        for (byte i = 0; i < names.length; ++i)
+            if (names[i].equals(name))
+                return i;
+        return -1;
+    }
+
+    /**
+     * Writes the @a payload to @a out as a frame.
+     */
+    public static void writeFrame(DataOutputStream out,
+                                  ByteArrayOutputStream payload) throws IOException {
+        out.writeInt(payload.size());
+        payload.writeTo(out);
+    }
+
+    /**
+     * Reads the payload of the next frame from @a in, or returns null
+     * if the stream ends before it.  Throws @a EOFException if the
+     * stream ends in the middle of the frame, and @a IOException if
+     * the frame is longer than @a maxLength, so a peer can't make us
+     * allocate any amount of memory.
+     */
+    public static byte[] readFrame(DataInputStream in,
+                                   int maxLength) throws IOException {
+        int first = in.read();
+        if (first < 0)
+            return null;
+
+        int length = (first << 24) | (in.readUnsignedByte() << 16)
+            | (in.readUnsignedShort());
+        if (length < 0 || length > maxLength)
+            throw new IOException("Bad frame length " + length);
+
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        return payload;
+    }
+
+    /**
+     * Writes the @a string, which may be null.
+     */
+    public static void writeString(DataOutput out,
+                                   String string) throws IOException {
+        if (string == null) {
+            out.writeByte(0);
+            return;
+        }
+
+        byte[] bytes = string.getBytes("UTF-8");
+        int length = bytes.length + 1;
+        for (; length >= 0x80; length >>>= 7)
+            out.writeByte(length | 0x80);
+        out.writeByte(length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string, which may be null, from the payload of a frame.
+     * Throws @a IOException if its length is negative or longer than
+     * what's left of the payload, before allocating anything, so a
+     * peer can't get around the cap of readFrame().
+     */
+    public static String readString(DataInputStream in) throws IOException {
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (shift > 28)
+                throw new IOException("Bad string length");
+            byte b = in.readByte();
+            length |= (b & 0x7f) << shift;
+            if (b >= 0)
+                break;
+        }
+        if (length == 0)
+            return null;
+        if (length < 0 || length - 1 > in.available())
+            throw new IOException("Bad string length " + length);
+
+        byte[] bytes = new byte[length - 1];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    /**
+     * This class only has static methods.
+     */
+    private BinaryProtocol() {
+    }
+}
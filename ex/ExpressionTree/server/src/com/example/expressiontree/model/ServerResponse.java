@@ -1,5 +1,10 @@
 package com.example.expressiontree.model;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.List;
 
 /**
@@ -87,42 +92,205 @@ public class ServerResponse {
      * formatted message that can be passed over HTTP.
      */
     public String toJson() {
-        StringBuilder out = new StringBuilder();
-		
-        out.append("{result:\"" + result + '"');
-		
-        if (clientID != null)
-            out.append(", clientID:" + clientID.longValue());
-		
-        if (message != null)
-            out.append(", message:\"" + message + '"');
-		
+        StringWriter out = new StringWriter();
+
+        try {
+            writeJson(out);
+        } catch (IOException e) {
+            // A StringWriter doesn't throw.
+            throw new AssertionError(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Writes the ServerResponse as a Json formatted message straight
+     * to @a out, escaping the strings as it goes, so no intermediate
+     * strings are made however many platform calls there are.
+     */
+    public void writeJson(Writer out) throws IOException {
+        JsonWriter json = new JsonWriter(out);
+
+        json.write("{result:");
+        json.writeString(result);
+
+        if (clientID != null) {
+            json.write(", clientID:");
+            json.write(Long.toString(clientID));
+        }
+
+        if (message != null) {
+            json.write(", message:");
+            json.writeString(message);
+        }
+
         if (platformCalls != null) {
-            out.append(", platformCalls: [");
-			
+            json.write(", platformCalls: [");
+
             for (int i = 0; i < platformCalls.size(); ++i) {
                 if (i != 0)
-                    out.append(',');
-				
+                    json.write(',');
+
                 PlatformCall call = platformCalls.get(i);
-				
-                out.append("{fname:\"" + call.fname + "\", params: [ ");
-				
+
+                json.write("{fname:");
+                json.writeString(call.fname);
+                json.write(", params: [ ");
+
                 for (int k = 0; k < call.params.size(); ++k) {
                     if (k != 0)
-                        out.append(',');
-						
-                    out.append('"' + call.params.get(k) + '"');
+                        json.write(',');
+
+                    json.writeString(call.params.get(k));
                 }
-					
-                out.append("] }");
+
+                json.write("] }");
             }
-			
-            out.append(']');
+
+            json.write(']');
+        }
+
+        json.write('}');
+        json.flush();
+    }
+
+    /**
+     * Writes the ServerResponse to @a out as a frame of the
+     * @a BinaryProtocol.
+     */
+    public void writeBinary(DataOutputStream out) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(bytes);
+
+        payload.writeByte(BinaryProtocol.resultCode(result));
+        payload.writeLong(clientID != null
+                          ? clientID
+                          : BinaryProtocol.NO_CLIENT_ID);
+        BinaryProtocol.writeString(payload, message);
+
+        if (platformCalls == null)
+            payload.writeInt(0);
+        else {
+            payload.writeInt(platformCalls.size());
+
+            for (PlatformCall call : platformCalls) {
+                byte function = BinaryProtocol.functionId(call.fname);
+                if (function < 0)
+                    throw new IOException("No ID for " + call.fname);
+
+                payload.writeByte(function);
+                if (function == BinaryProtocol.DISABLE_ALL)
+                    payload.writeBoolean(Boolean.parseBoolean(call.params.get(0)));
+                else
+                    for (String param : call.params)
+                        BinaryProtocol.writeString(payload, param);
+            }
+        }
+
+        BinaryProtocol.writeFrame(out, bytes);
+    }
+
+    /**
+     * @class JsonWriter
+     *
+     * @brief Buffers the characters of a Json message and hands them
+     *        to a @a Writer in large blocks, since the methods of
+     *        most writers are synchronized and too costly to call per
+     *        token.
+     */
+    private static class JsonWriter {
+        /**
+         * The hexadecimal digits of the characters that are escaped.
+         */
+        private final static char[] HEX_DIGITS =
+            "0123456789abcdef".toCharArray();
+
+        /** Where the message goes. */
+        private final Writer out;
+
+        /** The characters not written to @a out yet. */
+        private final char[] buffer = new char[4096];
+
+        /** Number of characters in the @a buffer. */
+        private int size;
+
+        JsonWriter(Writer out) {
+            this.out = out;
+        }
+
+        /** Writes the character @a c as it is. */
+        void write(char c) throws IOException {
+            if (size == buffer.length)
+                flush();
+            buffer[size++] = c;
+        }
+
+        /** Writes @a string as it is. */
+        void write(String string) throws IOException {
+            write(string, 0, string.length());
+        }
+
+        /**
+         * Writes the characters of @a string from @a begin up to
+         * @a end as they are.
+         */
+        void write(String string, int begin, int end) throws IOException {
+            while (begin < end) {
+                if (size == buffer.length)
+                    flush();
+
+                int count = Math.min(end - begin, buffer.length - size);
+                string.getChars(begin, begin + count, buffer, size);
+                begin += count;
+                size += count;
+            }
+        }
+
+        /**
+         * Writes @a string as a quoted Json string.  Quotes,
+         * backslashes, and control characters are escaped, and so is
+         * everything outside of printable ASCII, so the message reads
+         * the same whatever character encoding the response is sent
+         * in.  The runs of characters in between are copied as they
+         * are.
+         */
+        void writeString(String string) throws IOException {
+            if (string == null)
+                string = "null";
+
+            write('"');
+
+            int begin = 0;
+            for (int i = 0; i < string.length(); ++i) {
+                char c = string.charAt(i);
+                if (c >= ' ' && c < 0x7f && c != '"' && c != '\\')
+                    continue;
+
+                write(string, begin, i);
+                begin = i + 1;
+
+                write('\\');
+                switch (c) {
+                case '"': write('"'); break;
+                case '\\': write('\\'); break;
+                case '\n': write('n'); break;
+                case '\r': write('r'); break;
+                case '\t': write('t'); break;
+                default:
+                    write('u');
+                    for (int shift = 12; shift >= 0; shift -= 4)
+                        write(HEX_DIGITS[(c >> shift) & 0xf]);
+                }
+            }
+            write(string, begin, string.length());
+
+            write('"');
+        }
+
+        /** Hands the buffered characters to @a out. */
+        void flush() throws IOException {
+            out.write(buffer, 0, size);
+            size = 0;
         }
-		
-        out.append("}");
-		
-        return out.toString();
     }
 }
@@ -0,0 +1,256 @@
+package com.example.expressiontree.server;
+
+import java.util.Arrays;
+
+/**
+ * @class BatchEvaluator
+ *
+ * @brief Evaluates an @a ExpressionProgram over many rows of variable
+ *        bindings at once.  Rather than running the program once per
+ *        row, it runs each instruction over a block of rows, so the
+ *        operand stack holds one column of values per entry and each
+ *        instruction becomes a simple loop over primitive arrays that
+ *        the JIT compiler can unroll and vectorize.  All the scratch
+ *        space is allocated up front and reused, so the inner loops
+ *        never allocate.
+ */
+public class BatchEvaluator {
+    /** Number of rows evaluated together. */
+    final static int BLOCK_SIZE = 256;
+
+    /** Operand stack holding one block of values per entry. */
+    private int[][] registers = new int[0][];
+
+    /** 
+     * Maps each symbol table slot to the index of the column that
+     * binds it in the current batch, or -1 if it isn't bound.
+     */
+    private int[] columnOfSlot = new int[0];
+
+    /** Variable values of a single row, used by the scalar fallback. */
+    private int[] row = new int[0];
+
+    /** Operand stack used by the scalar fallback. */
+    private int[] stack = new int[0];
+
+    /** 
+     * Evaluate @a program once per row, storing the total of row @a
+     * i in @a results[i].  The variable in slot @a slots[c] takes its
+     * value for row @a i from @a columns[c][i], and every other
+     * variable takes its value from @a vars, which is indexed by
+     * slot.  Each of the @a columns must hold at least @a
+     * results.length values.  A row that divides by zero reports the
+     * error to the @a platform and yields the same total as
+     * evaluating it on its own.
+     */
+    public void evaluate(ExpressionProgram program,
+                         int[] vars,
+                         int[] slots,
+                         int[][] columns,
+                         int[] results,
+                         Platform platform) {
+        prepare(program, vars, slots);
+
+        for (int start = 0; start < results.length; start += BLOCK_SIZE) {
+            int length = Math.min(BLOCK_SIZE, results.length - start);
+
+            if (!evaluateBlock(program, vars, columns, start, length, results))
+                /** 
+                 * Some row in the block divides by zero, so evaluate
+                 * the block one row at a time.
+                 */
+                evaluateRows(program, slots, columns, start, length, results,
+                             platform);
+        }
+    }
+
+    /** 
+     * Evaluate rows @a from (which must be a multiple of @a
+     * BLOCK_SIZE) up to @a to like evaluate() does, except that a
+     * block with a row that divides by zero is skipped and flagged in
+     * @a faulted, which is indexed by block, so the caller can
+     * evaluate it with evaluateRows() on a thread of its choosing.
+     */
+    void evaluateBlocks(ExpressionProgram program,
+                        int[] vars,
+                        int[] slots,
+                        int[][] columns,
+                        int[] results,
+                        int from,
+                        int to,
+                        boolean[] faulted) {
+        prepare(program, vars, slots);
+
+        for (int start = from; start < to; start += BLOCK_SIZE) {
+            int length = Math.min(BLOCK_SIZE, to - start);
+
+            if (!evaluateBlock(program, vars, columns, start, length, results))
+                faulted[start / BLOCK_SIZE] = true;
+        }
+    }
+
+    /** 
+     * Evaluate the @a length rows that begin at row @a start one row
+     * at a time, so each division by zero is reported to the @a
+     * platform.  Must follow a call to prepare() for the same batch.
+     */
+    void evaluateRows(ExpressionProgram program,
+                      int[] slots,
+                      int[][] columns,
+                      int start,
+                      int length,
+                      int[] results,
+                      Platform platform) {
+        for (int i = start; i < start + length; ++i) {
+            for (int c = 0; c < slots.length; ++c)
+                row[slots[c]] = columns[c][i];
+            results[i] = program.execute(row, stack, platform);
+        }
+    }
+
+    /** 
+     * Size the scratch space for @a program and record which column
+     * binds each slot.
+     */
+    void prepare(ExpressionProgram program, int[] vars, int[] slots) {
+        if (registers.length < program.maxStack()) {
+            registers = new int[program.maxStack()][BLOCK_SIZE];
+            stack = new int[program.maxStack()];
+        }
+
+        int slotCount = vars.length;
+        for (int slot : slots)
+            slotCount = Math.max(slotCount, slot + 1);
+        if (columnOfSlot.length < slotCount) {
+            columnOfSlot = new int[slotCount];
+            row = new int[slotCount];
+        }
+
+        Arrays.fill(columnOfSlot, -1);
+        for (int c = 0; c < slots.length; ++c)
+            columnOfSlot[slots[c]] = c;
+        System.arraycopy(vars, 0, row, 0, vars.length);
+    }
+
+    /** 
+     * Evaluate the @a length rows that begin at row @a start into @a
+     * results.  Returns false, without touching @a results, if any of
+     * the rows divides by zero.
+     */
+    private boolean evaluateBlock(ExpressionProgram program,
+                                  int[] vars,
+                                  int[][] columns,
+                                  int start,
+                                  int length,
+                                  int[] results) {
+        int[] code = program.code();
+        int[] constants = program.constants();
+        int temporaryBase = program.maxStack() - program.temporaries();
+        int sp = 0;
+
+        /** 
+         * Since the stack depth doesn't depend on the values, the
+         * guards below either hold for every row or for none.
+         */
+        for (int pc = 0; pc < code.length; ++pc) {
+            int instruction = code[pc];
+            int operand = instruction >>> ExpressionProgram.OPCODE_BITS;
+
+            switch (instruction & ExpressionProgram.OPCODE_MASK) {
+            case ExpressionProgram.CONSTANT:
+                Arrays.fill(registers[sp++], 0, length, constants[operand]);
+                break;
+            case ExpressionProgram.VARIABLE:
+                if (operand < columnOfSlot.length && columnOfSlot[operand] >= 0)
+                    System.arraycopy(columns[columnOfSlot[operand]], start,
+                                     registers[sp++], 0, length);
+                else
+                    Arrays.fill(registers[sp++], 0, length, vars[operand]);
+                break;
+            case ExpressionProgram.NEGATE:
+                if (sp >= 1)
+                    negate(registers[sp - 1], length);
+                break;
+            case ExpressionProgram.ADD:
+                if (sp >= 2) {
+                    --sp;
+                    add(registers[sp - 1], registers[sp], length);
+                }
+                break;
+            case ExpressionProgram.SUBTRACT:
+                if (sp >= 2) {
+                    --sp;
+                    subtract(registers[sp - 1], registers[sp], length);
+                }
+                break;
+            case ExpressionProgram.MULTIPLY:
+                if (sp >= 2) {
+                    --sp;
+                    multiply(registers[sp - 1], registers[sp], length);
+                }
+                break;
+            case ExpressionProgram.DIVIDE:
+                if (sp >= 2) {
+                    if (containsZero(registers[sp - 1], length))
+                        return false;
+                    --sp;
+                    divide(registers[sp - 1], registers[sp], length);
+                }
+                break;
+            case ExpressionProgram.STORE:
+                if (sp >= 1)
+                    System.arraycopy(registers[sp - 1], 0,
+                                     registers[temporaryBase + operand], 0, length);
+                break;
+            case ExpressionProgram.LOAD:
+                System.arraycopy(registers[temporaryBase + operand], 0,
+                                 registers[sp++], 0, length);
+                break;
+            }
+        }
+
+        if (sp > 0)
+            System.arraycopy(registers[sp - 1], 0, results, start, length);
+        else
+            Arrays.fill(results, start, start + length, 0);
+        return true;
+    }
+
+    /** Negate the first @a length values of @a a. */
+    private static void negate(int[] a, int length) {
+        for (int i = 0; i < length; ++i)
+            a[i] = -a[i];
+    }
+
+    /** Add the first @a length values of @a b to those of @a a. */
+    private static void add(int[] a, int[] b, int length) {
+        for (int i = 0; i < length; ++i)
+            a[i] += b[i];
+    }
+
+    /** Subtract the first @a length values of @a b from those of @a a. */
+    private static void subtract(int[] a, int[] b, int length) {
+        for (int i = 0; i < length; ++i)
+            a[i] -= b[i];
+    }
+
+    /** Multiply the first @a length values of @a a by those of @a b. */
+    private static void multiply(int[] a, int[] b, int length) {
+        for (int i = 0; i < length; ++i)
+            a[i] *= b[i];
+    }
+
+    /** Divide the first @a length values of @a a by those of @a b. */
+    private static void divide(int[] a, int[] b, int length) {
+        for (int i = 0; i < length; ++i)
+            a[i] /= b[i];
+    }
+
+    /** Returns true if any of the first @a length values of @a a is 0. */
+    private static boolean containsZero(int[] a, int length) {
+        for (int i = 0; i < length; ++i)
+            if (a[i] == 0)
+                return true;
+        return false;
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.expressiontree.server;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+ * @class CompileVisitor
+ *
+ * @brief This plays the role of a visitor that compiles the nodes of
+ *        an expression tree that's being iterated in post-order
+ *        fashion (and does not work correctly with any other
+ *        iterator) into an @a ExpressionProgram.  It can also walk the
+ *        DAG of an @a InternedExpressionTree itself, in which case
+ *        each shared subtree is compiled once.  This class plays
+ *        the role of the "ConcreteVisitor" in the Visitor pattern.
+ */
+public class CompileVisitor implements Visitor {
+    /** The instructions emitted so far. */
+    private int[] code = new int[16];
+
+    /** Number of instructions emitted so far. */
+    private int codeSize;
+
+    /** The operand pool built so far. */
+    private int[] constants = new int[8];
+
+    /** Number of constants in the operand pool. */
+    private int constantCount;
+
+    /** Depth of the operand stack after the last instruction. */
+    private int depth;
+
+    /** The deepest the operand stack has gotten so far. */
+    private int maxDepth;
+
+    /** Number of temporaries allocated so far. */
+    private int temporaryCount;
+
+    /** Ctor. */
+    public CompileVisitor() {
+    }
+
+    /** Visit a @a LeafNode. */
+    public void visit(LeafNode node) {
+        if (constantCount == constants.length)
+            constants = Arrays.copyOf(constants, constantCount * 2);
+        constants[constantCount] = node.item();
+        emit(ExpressionProgram.CONSTANT, constantCount++, 1);
+    }
+
+    /** Visit a @a VariableNode. */
+    public void visit(VariableNode node) {
+        emit(ExpressionProgram.VARIABLE, node.slot(), 1);
+    }
+
+    /** Visit a @a CompositeNegateNode. */
+    public void visit(CompositeNegateNode node) {
+        emit(ExpressionProgram.NEGATE, 0, 0);
+    }
+
+    /** Visit a @a CompositeAddNode. */
+    public void visit(CompositeAddNode node) {
+        emit(ExpressionProgram.ADD, 0, -1);
+    }
+
+    /** Visit a @a CompositeSubtractNode. */
+    public void visit(CompositeSubtractNode node) {
+        emit(ExpressionProgram.SUBTRACT, 0, -1);
+    }
+
+    /** Visit a @a CompositeDivideNode. */
+    public void visit(CompositeDivideNode node) {
+        emit(ExpressionProgram.DIVIDE, 0, -1);
+    }
+
+    /** Visit a @a CompositeMultiplyNode. */
+    public void visit(CompositeMultiplyNode node) {
+        emit(ExpressionProgram.MULTIPLY, 0, -1);
+    }
+
+    /** 
+     * Compile the DAG rooted at @a root by visiting its nodes in
+     * post-order, except that an operator node with more than one
+     * parent is compiled only where it first occurs, after which its
+     * value is stored in a temporary.  Every later occurrence just
+     * loads the temporary rather than visiting the subtree again.
+     * Returns the program compiled so far.
+     */
+    public ExpressionProgram compileShared(ComponentNode root) {
+        IdentityHashMap<ComponentNode, Integer> parents = countParents(root);
+        IdentityHashMap<ComponentNode, Integer> temporaries =
+            new IdentityHashMap<>();
+
+        /** 
+         * Each node is pushed once to visit its children and, after
+         * they have been compiled, once more to compile the node
+         * itself.
+         */
+        ComponentNode[] stack = new ComponentNode[16];
+        boolean[] expanded = new boolean[16];
+        int top = 0;
+
+        stack[top++] = root;
+
+        while (top > 0) {
+            ComponentNode node = stack[--top];
+
+            if (!expanded[top]) {
+                Integer temporary = temporaries.get(node);
+                if (temporary != null) {
+                    emit(ExpressionProgram.LOAD, temporary, 1);
+                    continue;
+                }
+
+                if (top + 3 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                    expanded = Arrays.copyOf(expanded, expanded.length * 2);
+                }
+
+                expanded[top++] = true;
+                if (node.right() != null) {
+                    stack[top] = node.right();
+                    expanded[top++] = false;
+                }
+                if (node.left() != null) {
+                    stack[top] = node.left();
+                    expanded[top++] = false;
+                }
+                continue;
+            }
+
+            node.accept(this);
+
+            /** 
+             * Reloading a constant or variable wouldn't be any cheaper
+             * than pushing it again.
+             */
+            if (node.right() != null && parents.get(node) > 1) {
+                temporaries.put(node, temporaryCount);
+                emit(ExpressionProgram.STORE, temporaryCount++, 0);
+            }
+        }
+
+        return program();
+    }
+
+    /** Returns the program compiled from the nodes visited so far. */
+    public ExpressionProgram program() {
+        return new ExpressionProgram(Arrays.copyOf(code, codeSize),
+                                     Arrays.copyOf(constants, constantCount),
+                                     maxDepth + temporaryCount,
+                                     temporaryCount);
+    }
+
+    /** Resets the compilation so it can be reused. */
+    public void reset() {
+        codeSize = 0;
+        constantCount = 0;
+        depth = 0;
+        maxDepth = 0;
+        temporaryCount = 0;
+    }
+
+    /** 
+     * Returns the number of parents of each node of the DAG rooted at
+     * @a root, counting a node that's both children of a parent
+     * twice.
+     */
+    private static IdentityHashMap<ComponentNode, Integer>
+        countParents(ComponentNode root) {
+        IdentityHashMap<ComponentNode, Integer> parents =
+            new IdentityHashMap<>();
+        ComponentNode[] stack = new ComponentNode[16];
+        int top = 0;
+
+        parents.put(root, 1);
+        stack[top++] = root;
+
+        /** The children of each node are only counted once. */
+        while (top > 0) {
+            ComponentNode node = stack[--top];
+
+            if (top + 2 > stack.length)
+                stack = Arrays.copyOf(stack, stack.length * 2);
+
+            ComponentNode left = node.left();
+            if (left != null && parents.merge(left, 1, Integer::sum) == 1)
+                stack[top++] = left;
+
+            ComponentNode right = node.right();
+            if (right != null && parents.merge(right, 1, Integer::sum) == 1)
+                stack[top++] = right;
+        }
+
+        return parents;
+    }
+
+    /** 
+     * Append an instruction that changes the depth of the operand
+     * stack by @a stackEffect.
+     */
+    private void emit(int opcode, int operand, int stackEffect) {
+        if (codeSize == code.length)
+            code = Arrays.copyOf(code, codeSize * 2);
+        code[codeSize++] = opcode | (operand << ExpressionProgram.OPCODE_BITS);
+
+        /** 
+         * Track the depth the way ExpressionProgram.execute() does,
+         * i.e., an operator with too few operands leaves the stack
+         * alone.
+         */
+        if (depth + stackEffect >= 1 || stackEffect > 0)
+            depth += stackEffect;
+        maxDepth = Math.max(maxDepth, depth);
+    }
+}
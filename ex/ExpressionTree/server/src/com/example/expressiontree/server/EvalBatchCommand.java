@@ -0,0 +1,54 @@
+package com.example.expressiontree.server;
+
+/**
+ * @class EvalBatchCommand
+ *
+ * @brief Evaluates the expression tree once per row of a batch of
+ *        variable bindings, e.g., "x=1,2,3; y=4,5,6", and prints the
+ *        comma-separated totals.  This plays the role of the
+ *        "ConcreteCommand" in the Command pattern.
+ */
+public class EvalBatchCommand extends UserCommand {
+    /** The variable bindings to evaluate the expression tree with. */
+    private String bindings;
+
+    /** 
+     * Constructor that provides the appropriate TreeOps and the
+     * requested variable bindings.
+     */
+    public EvalBatchCommand(TreeOps context, 
+                            String bindings) {
+        super.treeOps = context;
+        this.bindings = bindings;
+    }
+
+    /** Evaluate the expression tree over the batch. */
+    public void execute(Platform platform) throws Exception {
+        treeOps.evaluateBatch(bindings, platform);
+    }
+
+    /** Creates a menu for the user. */
+    public void printValidCommands(boolean verboseField,
+                                   Platform platform) {
+    	platform.disableAll(verboseField);
+    	platform.outputMenu("", "", "");
+        platform.outputMenu("1a.",
+                            "eval",
+                            "[post-order | compiled]");
+        platform.outputMenu("1b.",
+                            "print", 
+                            "[in-order | pre-order | post-order| level-order]");
+        platform.outputMenu("0a.",
+                            "format",
+                            "[in-order]");
+        platform.outputMenu("0b.",
+                            "set",
+                            "[variable = value]");
+        platform.outputMenu("0c.",
+                            "quit",
+                            "");
+        platform.outputMenu("",
+                            "",
+                            "");
+    }
+}
@@ -24,18 +24,18 @@ public class EvalCommand extends UserCommand {
     }
 
     /** Evaluate the expression tree. */
-    public void execute() throws Exception {
-        treeOps.evaluate(format);
+    public void execute(Platform platform) throws Exception {
+        treeOps.evaluate(format, platform);
     }
 
     /** Creates a menu for the user. */
-    public void printValidCommands(boolean verboseField) {
-        Platform platform = Platform.instance();
+    public void printValidCommands(boolean verboseField,
+                                   Platform platform) {
     	platform.disableAll(verboseField);
     	platform.outputMenu("", "", "");
         platform.outputMenu("1a.",
                             "eval",
-                            "[post-order]");
+                            "[post-order | compiled]");
         platform.outputMenu("1b.",
                             "print", 
                             "[in-order | pre-order | post-order| level-order]");
@@ -1,5 +1,6 @@
 package com.example.expressiontree.server;
 
+import java.util.BitSet;
 import java.util.Stack;
 
 /**
@@ -19,8 +20,18 @@ public class EvaluationVisitor implements Visitor {
     private Stack<Integer> stack =
         new Stack<Integer>();
 
-    /** Ctor. */
-    public EvaluationVisitor() {
+    /** The platform errors are reported to. */
+    private Platform platform;
+
+    /** The slots of the variables visited so far. */
+    private BitSet read = new BitSet();
+
+    /** True if the evaluation has divided by zero. */
+    private boolean dividedByZero;
+
+    /** Ctor that reports errors to the designated @a platform. */
+    public EvaluationVisitor(Platform platform) {
+        this.platform = platform;
     }
 
     /** Visit a @a LeafNode. */
@@ -28,6 +39,12 @@ public class EvaluationVisitor implements Visitor {
         stack.push(node.item());
     }
 
+    /** Visit a @a VariableNode. */
+    public void visit(VariableNode node) {
+        read.set(node.slot());
+        stack.push(node.item());
+    }
+
     /** Visit a  CompositeSubtractNode. */
     public void visit(CompositeNegateNode node) {
         if(stack.size() >= 1)
@@ -55,11 +72,11 @@ public class EvaluationVisitor implements Visitor {
                 int rhs = stack.pop();
                 stack.push(stack.pop() / rhs);
             } else {
-                Platform platform = Platform.instance();
                 platform.errorLog("EvaluationVisitor",
                                   "\n\n**: Division by zero is not allowed. ");
                 platform.errorLog("EvaluationVisitor",
                                   "Resetting evaluation visitor.\n\n");
+                dividedByZero = true;
                 reset();
             }
         }
@@ -79,6 +96,22 @@ public class EvaluationVisitor implements Visitor {
             return 0;
     }
 
+    /** 
+     * Returns true if the evaluation divided by zero, which was
+     * reported to the platform.
+     */
+    public boolean dividedByZero() {
+        return dividedByZero;
+    }
+
+    /** 
+     * Returns the distinct slots of the variables the evaluation
+     * read, in order.
+     */
+    public int[] slots() {
+        return read.stream().toArray();
+    }
+
     /** Resets the evaluation to it can be reused. */
     public void reset() {
         stack.clear();
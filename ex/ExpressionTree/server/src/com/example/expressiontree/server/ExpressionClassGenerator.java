@@ -0,0 +1,356 @@
+package com.example.expressiontree.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @class ExpressionClassGenerator
+ *
+ * @brief Translates an @a ExpressionProgram into the bytecode of a
+ *        new JVM class that implements @a IntExpression and loads it,
+ *        so the JIT compiler can inline the expression's arithmetic
+ *        into a handful of machine instructions.  The generated
+ *        eval() method is straight-line code (no branches), so the
+ *        class file needs no stack map frames and is emitted by hand
+ *        rather than with a bytecode library.
+ */
+public class ExpressionClassGenerator {
+    /** Class file version of Java 8. */
+    private final static int CLASS_VERSION = 52;
+
+    /** The JVM limit on the length of a method's code. */
+    private final static int MAX_CODE_LENGTH = 65535;
+
+    /** The JVM limit on the number of constant pool entries. */
+    private final static int MAX_CONSTANTS = 65535;
+
+    /** Access flags. */
+    private final static int ACC_PUBLIC = 0x0001;
+    private final static int ACC_FINAL = 0x0010;
+    private final static int ACC_SUPER = 0x0020;
+
+    /** Constant pool tags. */
+    private final static int CONSTANT_UTF8 = 1;
+    private final static int CONSTANT_INTEGER = 3;
+    private final static int CONSTANT_CLASS = 7;
+    private final static int CONSTANT_METHODREF = 10;
+    private final static int CONSTANT_NAME_AND_TYPE = 12;
+
+    /** The opcodes that are emitted. */
+    private final static int ICONST_0 = 0x03;
+    private final static int BIPUSH = 0x10;
+    private final static int SIPUSH = 0x11;
+    private final static int LDC = 0x12;
+    private final static int LDC_W = 0x13;
+    private final static int ILOAD = 0x15;
+    private final static int ALOAD_0 = 0x2a;
+    private final static int ALOAD_1 = 0x2b;
+    private final static int IALOAD = 0x2e;
+    private final static int ISTORE = 0x36;
+    private final static int DUP = 0x59;
+    private final static int IADD = 0x60;
+    private final static int ISUB = 0x64;
+    private final static int IMUL = 0x68;
+    private final static int IDIV = 0x6c;
+    private final static int INEG = 0x74;
+    private final static int IRETURN = 0xac;
+    private final static int RETURN = 0xb1;
+    private final static int INVOKESPECIAL = 0xb7;
+    private final static int WIDE = 0xc4;
+
+    /** 
+     * The local variable that holds the first temporary, i.e., the
+     * one after "this" and the "vars" parameter.
+     */
+    private final static int FIRST_TEMPORARY = 2;
+
+    /** The JVM limit on the number of local variables of a method. */
+    private final static int MAX_LOCALS = 65535;
+
+    /** Used to give each generated class a unique name. */
+    private final static AtomicLong classCount = new AtomicLong();
+
+    /**
+     * @class Loader
+     *
+     * @brief Defines a single generated class.  Each class gets its
+     *        own loader so it can be unloaded as soon as the tree it
+     *        was generated from is discarded.
+     */
+    private static class Loader extends ClassLoader {
+        Loader() {
+            super(IntExpression.class.getClassLoader());
+        }
+
+        Class<?> define(String name, byte[] classFile) {
+            return defineClass(name, classFile, 0, classFile.length);
+        }
+    }
+
+    /** The constant pool of the class being generated. */
+    private ByteArrayOutputStream constantPool;
+
+    /** The number of entries in the constant pool (plus one). */
+    private int constantCount;
+
+    /** Maps int constants to their constant pool index. */
+    private HashMap<Integer, Integer> integerConstants;
+
+    /** 
+     * Generate and load a class that evaluates @a program.  Returns
+     * null if the program can't be expressed as straight-line
+     * bytecode, i.e., if it's malformed (an operator is missing an
+     * operand) or too big to fit in a single method, in which case
+     * the caller keeps running the @a program itself.
+     */
+    public IntExpression generate(ExpressionProgram program) {
+        int[] code = program.code();
+        int[] constants = program.constants();
+
+        /**
+         * The guards in ExpressionProgram.execute() that skip an
+         * operator with too few operands have no equivalent in
+         * straight-line code, so make sure they never fire.
+         */
+        int depth = 0;
+        int maxDepth = 0;
+        for (int instruction : code) {
+            switch (instruction & ExpressionProgram.OPCODE_MASK) {
+            case ExpressionProgram.CONSTANT:
+                ++depth;
+                break;
+            case ExpressionProgram.VARIABLE:
+                /** Room for the array and index below the value. */
+                maxDepth = Math.max(maxDepth, depth + 2);
+                ++depth;
+                break;
+            case ExpressionProgram.NEGATE:
+                if (depth < 1)
+                    return null;
+                break;
+            case ExpressionProgram.STORE:
+                if (depth < 1)
+                    return null;
+                /** Room for the value that's duplicated. */
+                maxDepth = Math.max(maxDepth, depth + 1);
+                break;
+            case ExpressionProgram.LOAD:
+                ++depth;
+                break;
+            default:
+                if (depth < 2)
+                    return null;
+                --depth;
+                break;
+            }
+            maxDepth = Math.max(maxDepth, depth);
+        }
+        if (depth != 1
+            || FIRST_TEMPORARY + program.temporaries() > MAX_LOCALS)
+            return null;
+
+        constantPool = new ByteArrayOutputStream();
+        constantCount = 1;
+        integerConstants = new HashMap<>();
+
+        try {
+            String name = ExpressionClassGenerator.class.getName()
+                + "$Expression" + classCount.incrementAndGet();
+
+            int thisClass = classConstant(name.replace('.', '/'));
+            int superClass = classConstant("java/lang/Object");
+            int interfaceClass =
+                classConstant(IntExpression.class.getName().replace('.', '/'));
+            int init = utf8Constant("<init>");
+            int voidDescriptor = utf8Constant("()V");
+            int superInit =
+                constant(CONSTANT_METHODREF,
+                         superClass,
+                         constant(CONSTANT_NAME_AND_TYPE, init, voidDescriptor));
+            int eval = utf8Constant("eval");
+            int evalDescriptor = utf8Constant("([I)I");
+            int codeAttribute = utf8Constant("Code");
+
+            /** The body of the eval() method. */
+            ByteArrayOutputStream bytecode = new ByteArrayOutputStream();
+            for (int instruction : code) {
+                int operand = instruction >>> ExpressionProgram.OPCODE_BITS;
+
+                switch (instruction & ExpressionProgram.OPCODE_MASK) {
+                case ExpressionProgram.CONSTANT:
+                    pushInt(bytecode, constants[operand]);
+                    break;
+                case ExpressionProgram.VARIABLE:
+                    bytecode.write(ALOAD_1);
+                    pushInt(bytecode, operand);
+                    bytecode.write(IALOAD);
+                    break;
+                case ExpressionProgram.NEGATE: bytecode.write(INEG); break;
+                case ExpressionProgram.ADD: bytecode.write(IADD); break;
+                case ExpressionProgram.SUBTRACT: bytecode.write(ISUB); break;
+                case ExpressionProgram.MULTIPLY: bytecode.write(IMUL); break;
+                case ExpressionProgram.DIVIDE: bytecode.write(IDIV); break;
+                case ExpressionProgram.STORE:
+                    bytecode.write(DUP);
+                    local(bytecode, ISTORE, FIRST_TEMPORARY + operand);
+                    break;
+                case ExpressionProgram.LOAD:
+                    local(bytecode, ILOAD, FIRST_TEMPORARY + operand);
+                    break;
+                }
+            }
+            bytecode.write(IRETURN);
+
+            if (bytecode.size() > MAX_CODE_LENGTH
+                || constantCount > MAX_CONSTANTS)
+                return null;
+
+            ByteArrayOutputStream classFile = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(classFile);
+
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(CLASS_VERSION);
+            out.writeShort(constantCount);
+            constantPool.writeTo(out);
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(1);
+            out.writeShort(interfaceClass);
+            /** No fields. */
+            out.writeShort(0);
+
+            out.writeShort(2);
+            /** public <init>() { super(); } */
+            writeMethod(out, init, voidDescriptor, codeAttribute, 1, 1,
+                        new byte[] { (byte) ALOAD_0,
+                                     (byte) INVOKESPECIAL,
+                                     (byte) (superInit >> 8),
+                                     (byte) superInit,
+                                     (byte) RETURN });
+            /** public int eval(int[] vars) { return ...; } */
+            writeMethod(out, eval, evalDescriptor, codeAttribute,
+                        maxDepth, FIRST_TEMPORARY + program.temporaries(),
+                        bytecode.toByteArray());
+
+            /** No class attributes. */
+            out.writeShort(0);
+
+            return (IntExpression) new Loader()
+                .define(name, classFile.toByteArray())
+                .getDeclaredConstructor()
+                .newInstance();
+        } catch (IOException | ReflectiveOperationException e) {
+            throw new IllegalStateException("Unable to generate expression class", e);
+        } finally {
+            constantPool = null;
+            integerConstants = null;
+        }
+    }
+
+    /** Emit the shortest instruction that pushes @a value. */
+    private void pushInt(ByteArrayOutputStream bytecode, int value)
+        throws IOException {
+        if (value >= -1 && value <= 5)
+            bytecode.write(ICONST_0 + value);
+        else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            bytecode.write(BIPUSH);
+            bytecode.write(value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            bytecode.write(SIPUSH);
+            bytecode.write(value >> 8);
+            bytecode.write(value);
+        } else {
+            int index = integerConstant(value);
+            if (index <= 0xff) {
+                bytecode.write(LDC);
+                bytecode.write(index);
+            } else {
+                bytecode.write(LDC_W);
+                bytecode.write(index >> 8);
+                bytecode.write(index);
+            }
+        }
+    }
+
+    /** 
+     * Emit the @a opcode that loads or stores the local variable at
+     * @a index, widening it if the index doesn't fit in a byte.
+     */
+    private static void local(ByteArrayOutputStream bytecode,
+                              int opcode,
+                              int index) {
+        if (index <= 0xff) {
+            bytecode.write(opcode);
+            bytecode.write(index);
+        } else {
+            bytecode.write(WIDE);
+            bytecode.write(opcode);
+            bytecode.write(index >> 8);
+            bytecode.write(index);
+        }
+    }
+
+    /** Write a public method whose only attribute is its @a code. */
+    private static void writeMethod(DataOutputStream out,
+                                    int name,
+                                    int descriptor,
+                                    int codeAttribute,
+                                    int maxStack,
+                                    int maxLocals,
+                                    byte[] code) throws IOException {
+        out.writeShort(ACC_PUBLIC);
+        out.writeShort(name);
+        out.writeShort(descriptor);
+        out.writeShort(1);
+
+        out.writeShort(codeAttribute);
+        out.writeInt(12 + code.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.length);
+        out.write(code);
+        /** No exception table or attributes. */
+        out.writeShort(0);
+        out.writeShort(0);
+    }
+
+    /** Returns the constant pool index of the int @a value. */
+    private int integerConstant(int value) throws IOException {
+        Integer index = integerConstants.get(value);
+        if (index == null) {
+            index = constantCount++;
+            DataOutputStream out = new DataOutputStream(constantPool);
+            out.writeByte(CONSTANT_INTEGER);
+            out.writeInt(value);
+            integerConstants.put(value, index);
+        }
+        return index;
+    }
+
+    /** Returns the index of a new Utf8 constant holding @a value. */
+    private int utf8Constant(String value) throws IOException {
+        DataOutputStream out = new DataOutputStream(constantPool);
+        out.writeByte(CONSTANT_UTF8);
+        out.writeUTF(value);
+        return constantCount++;
+    }
+
+    /** Returns the index of a new Class constant named @a name. */
+    private int classConstant(String name) throws IOException {
+        return constant(CONSTANT_CLASS, utf8Constant(name));
+    }
+
+    /** Returns the index of a new constant made of @a indexes. */
+    private int constant(int tag, int... indexes) throws IOException {
+        DataOutputStream out = new DataOutputStream(constantPool);
+        out.writeByte(tag);
+        for (int index : indexes)
+            out.writeShort(index);
+        return constantCount++;
+    }
+}
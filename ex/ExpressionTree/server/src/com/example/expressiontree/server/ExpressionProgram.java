@@ -0,0 +1,272 @@
+package com.example.expressiontree.server;
+
+import java.util.BitSet;
+import java.util.function.Supplier;
+
+/**
+ * @class ExpressionProgram
+ *
+ * @brief An expression tree compiled into a flat postfix program
+ *        that's run by a tight loop over a primitive operand stack.
+ *        Each instruction is a single int whose low bits hold the
+ *        opcode and whose high bits hold the index of its operand,
+ *        i.e., a constant in the operand pool or a variable slot in
+ *        the @a Interpreter.SymbolTable.  Running the program yields
+ *        the same total, and reports the same errors, as iterating
+ *        the tree in post-order with an @a EvaluationVisitor.
+ *        A program compiled from an @a InternedExpressionTree keeps
+ *        the value of each shared subtree in a temporary, which lives
+ *        in the scratch stack above the operands.
+ */
+public class ExpressionProgram {
+    /** Push the constant at the operand index. */
+    final static int CONSTANT = 0;
+
+    /** Push the value of the variable at the operand index. */
+    final static int VARIABLE = 1;
+
+    /** Negate the top of the stack. */
+    final static int NEGATE = 2;
+
+    /** Add the top two values on the stack. */
+    final static int ADD = 3;
+
+    /** Subtract the top value on the stack from the one below. */
+    final static int SUBTRACT = 4;
+
+    /** Multiply the top two values on the stack. */
+    final static int MULTIPLY = 5;
+
+    /** Divide the value below the top of the stack by the top. */
+    final static int DIVIDE = 6;
+
+    /** 
+     * Copy the top of the stack into the temporary at the operand
+     * index.
+     */
+    final static int STORE = 7;
+
+    /** Push the temporary at the operand index. */
+    final static int LOAD = 8;
+
+    /** Number of low bits of an instruction that hold the opcode. */
+    final static int OPCODE_BITS = 4;
+
+    /** Mask that extracts the opcode from an instruction. */
+    final static int OPCODE_MASK = (1 << OPCODE_BITS) - 1;
+
+    /** The instructions, in postfix order. */
+    private final int[] code;
+
+    /** The constants referenced by @a CONSTANT instructions. */
+    private final int[] constants;
+
+    /** 
+     * The size of the scratch stack, i.e., the deepest the operand
+     * stack gets while running plus the number of temporaries.
+     */
+    private final int maxStack;
+
+    /** The number of temporaries used by @a STORE and @a LOAD. */
+    private final int temporaries;
+
+    /** 
+     * Compiles the program without temporaries, which recomputes
+     * every shared subtree where it occurs.
+     */
+    private Supplier<ExpressionProgram> unshared;
+
+    /** The program compiled by @a unshared, once it's needed. */
+    private ExpressionProgram unsharedProgram;
+
+    /** The distinct variable slots the program reads, in order. */
+    private final int[] slots;
+
+    /** Ctor */
+    ExpressionProgram(int[] code,
+                      int[] constants,
+                      int maxStack) {
+        this(code, constants, maxStack, 0);
+    }
+
+    /** Ctor */
+    ExpressionProgram(int[] code,
+                      int[] constants,
+                      int maxStack,
+                      int temporaries) {
+        this.code = code;
+        this.constants = constants;
+        this.maxStack = maxStack;
+        this.temporaries = temporaries;
+
+        BitSet read = new BitSet();
+        for (int instruction : code)
+            if ((instruction & OPCODE_MASK) == VARIABLE)
+                read.set(instruction >>> OPCODE_BITS);
+        this.slots = read.stream().toArray();
+    }
+
+    /** Returns the instructions of the program. */
+    int[] code() {
+        return code;
+    }
+
+    /** Returns the operand pool of the program. */
+    int[] constants() {
+        return constants;
+    }
+
+    /** 
+     * Returns the size of the scratch stack the program needs,
+     * including its temporaries.
+     */
+    public int maxStack() {
+        return maxStack;
+    }
+
+    /** 
+     * Returns the distinct variable slots the program reads, i.e.,
+     * the only slots its total depends on.
+     */
+    int[] slots() {
+        return slots;
+    }
+
+    /** 
+     * Returns the number of temporaries, which occupy the top of the
+     * scratch stack.
+     */
+    int temporaries() {
+        return temporaries;
+    }
+
+    /** 
+     * Set the means to compile this program without temporaries,
+     * which is needed to report a division by zero inside a shared
+     * subtree the same way the @a EvaluationVisitor does.
+     */
+    void unshared(Supplier<ExpressionProgram> unshared) {
+        this.unshared = unshared;
+    }
+
+    /** 
+     * Run the program with the variable values in @a vars, which is
+     * indexed by slot, and return its total.  A division by zero is
+     * reported to the @a platform.
+     */
+    public int execute(int[] vars, Platform platform) {
+        return execute(vars, new int[maxStack], platform);
+    }
+
+    /** 
+     * Run the program with the variable values in @a vars, using @a
+     * stack (which must hold at least @a maxStack() values) as
+     * scratch space, and return its total.  A division by zero is
+     * reported to the @a platform, or throws an @a
+     * ArithmeticException if @a platform is null.
+     */
+    public int execute(int[] vars, int[] stack, Platform platform) {
+        if (temporaries == 0)
+            return run(vars, stack, platform);
+
+        try {
+            return run(vars, stack, null);
+        } catch (ArithmeticException e) {
+            return executeUnshared(vars, platform);
+        }
+    }
+
+    /** 
+     * Run the program like execute() does, except that if @a
+     * platform is null a division by zero throws an @a
+     * ArithmeticException instead of being reported.
+     */
+    private int run(int[] vars, int[] stack, Platform platform) {
+        final int temporaryBase = maxStack - temporaries;
+        int sp = 0;
+
+        for (int pc = 0; pc < code.length; ++pc) {
+            int instruction = code[pc];
+
+            switch (instruction & OPCODE_MASK) {
+            case CONSTANT:
+                stack[sp++] = constants[instruction >>> OPCODE_BITS];
+                break;
+            case VARIABLE:
+                stack[sp++] = vars[instruction >>> OPCODE_BITS];
+                break;
+            case NEGATE:
+                if (sp >= 1)
+                    stack[sp - 1] = -stack[sp - 1];
+                break;
+            case ADD:
+                if (sp >= 2) {
+                    --sp;
+                    stack[sp - 1] += stack[sp];
+                }
+                break;
+            case SUBTRACT:
+                if (sp >= 2) {
+                    --sp;
+                    stack[sp - 1] -= stack[sp];
+                }
+                break;
+            case MULTIPLY:
+                if (sp >= 2) {
+                    --sp;
+                    stack[sp - 1] *= stack[sp];
+                }
+                break;
+            case DIVIDE:
+                if (sp >= 2) {
+                    if (stack[sp - 1] != 0) {
+                        --sp;
+                        stack[sp - 1] /= stack[sp];
+                    } else if (platform == null) {
+                        throw new ArithmeticException("/ by zero");
+                    } else {
+                        divisionByZero(platform);
+                        sp = 0;
+                    }
+                }
+                break;
+            case STORE:
+                if (sp >= 1)
+                    stack[temporaryBase + (instruction >>> OPCODE_BITS)]
+                        = stack[sp - 1];
+                break;
+            case LOAD:
+                stack[sp++] = stack[temporaryBase + (instruction >>> OPCODE_BITS)];
+                break;
+            }
+        }
+
+        return sp > 0 ? stack[sp - 1] : 0;
+    }
+
+    /** 
+     * Rerun the program without temporaries.  The @a
+     * EvaluationVisitor recomputes a shared subtree, and so reports
+     * its division by zero and resets its stack, at every
+     * occurrence, which a program that computes it only once can't
+     * reproduce.  Faults are rare, so the unshared program (whose
+     * size is that of the tree rather than the DAG) is only compiled
+     * when one first occurs.
+     */
+    private int executeUnshared(int[] vars, Platform platform) {
+        if (unsharedProgram == null)
+            unsharedProgram = unshared.get();
+        return unsharedProgram.execute(vars, platform);
+    }
+
+    /** 
+     * Report a division by zero to the @a platform the same way the
+     * @a EvaluationVisitor does.
+     */
+    static void divisionByZero(Platform platform) {
+        platform.errorLog("EvaluationVisitor",
+                          "\n\n**: Division by zero is not allowed. ");
+        platform.errorLog("EvaluationVisitor",
+                          "Resetting evaluation visitor.\n\n");
+    }
+}
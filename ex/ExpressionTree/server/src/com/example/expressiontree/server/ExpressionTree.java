@@ -15,8 +15,11 @@ public class ExpressionTree {
     /** Base implementor. */
     protected ComponentNode root = null;
 
-    /** A factory class capable of creating iterators dynamically. */
-    private IteratorFactory treeIteratorFactory
+    /** 
+     * A factory class capable of creating iterators dynamically.
+     * It's immutable, so every tree shares the same one.
+     */
+    private static final IteratorFactory treeIteratorFactory
         = new IteratorFactory();
 
     /**
@@ -59,7 +62,10 @@ public class ExpressionTree {
 
     /** 
      * Returns an @a Iterator that supports the requested
-     * traveralOrder.
+     * traveralOrder.  Each call to its next() returns the same
+     * @a ExpressionTree, moved to the next node, so a caller that
+     * keeps a node past the following call to next() must copy it,
+     * e.g., into a new @a ExpressionTree of its getRoot().
      */
     public Iterator<ExpressionTree> makeIterator
         (String traversalOrderRequest) {
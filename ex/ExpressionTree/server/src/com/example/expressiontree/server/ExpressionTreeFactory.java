@@ -2,21 +2,68 @@ package com.example.expressiontree.server;
 
 /**
  * @class ExpressionTreeFactory
- * 
+ *
  * @brief This class implements the Factory Method pattern to create
  *        @a ExpressionTree objects.  If you want a different type
  *        of @a ExpressionTree you can subclass from this class and
- *        override the @a makeExpressionTree() factory method.
+ *        override the @a makeExpressionTree() factory method.  The
+ *        @a Interpreter also creates every @a ComponentNode of the
+ *        tree through the node factory methods below, so a subclass
+ *        can override them to change how the nodes are created.
  */
 public class ExpressionTreeFactory {
-    /** 
+    /**
      * Create a new @a ExpressionTree object that encapsulates the @a
      * componentNodeRoot that's passed as a parameter.
      */
     public ExpressionTree makeExpressionTree(ComponentNode componentNodeRoot) {
         return new ExpressionTree(componentNodeRoot);
     }
+
+    /** Create a @a LeafNode that holds @a item. */
+    public ComponentNode makeLeafNode(int item) {
+        return new LeafNode(item);
+    }
+
+    /**
+     * Create a @a VariableNode for the variable @a name, whose value
+     * is held in @a slot of the @a symbolTable.
+     */
+    public ComponentNode makeVariableNode(String name,
+                                          int slot,
+                                          Interpreter.SymbolTable symbolTable) {
+        return new VariableNode(name, slot, symbolTable);
+    }
+
+    /** Create a @a CompositeNegateNode whose child is @a right. */
+    public ComponentNode makeNegateNode(ComponentNode right) {
+        return new CompositeNegateNode(right);
+    }
+
+    /** Create a @a CompositeAddNode with the given children. */
+    public ComponentNode makeAddNode(ComponentNode left,
+                                     ComponentNode right) {
+        return new CompositeAddNode(left, right);
+    }
+
+    /** Create a @a CompositeSubtractNode with the given children. */
+    public ComponentNode makeSubtractNode(ComponentNode left,
+                                          ComponentNode right) {
+        return new CompositeSubtractNode(left, right);
+    }
+
+    /** Create a @a CompositeMultiplyNode with the given children. */
+    public ComponentNode makeMultiplyNode(ComponentNode left,
+                                          ComponentNode right) {
+        return new CompositeMultiplyNode(left, right);
+    }
+
+    /** Create a @a CompositeDivideNode with the given children. */
+    public ComponentNode makeDivideNode(ComponentNode left,
+                                        ComponentNode right) {
+        return new CompositeDivideNode(left, right);
+    }
 }
-	
-	
-	
+
+
+
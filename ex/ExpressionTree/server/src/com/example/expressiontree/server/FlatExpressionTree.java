@@ -0,0 +1,574 @@
+package com.example.expressiontree.server;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * @class FlatExpressionTree
+ *
+ * @brief An @a ExpressionTree that stores its nodes in a handful of
+ *        parallel primitive arrays (kind, children, first descendant,
+ *        and value) rather than as a graph of @a ComponentNode
+ *        objects.  Nodes are referred to by int handles and are
+ *        stored in post-order, so every subtree occupies a contiguous
+ *        range of handles that ends at its root.
+ *
+ *        Each @a FlatExpressionTree is a view of one node.  Its
+ *        iterators return a single cursor view that's moved from node
+ *        to node instead of allocating a new view per node, and its
+ *        accept() method dispatches to the @a Visitor through
+ *        flyweight nodes, so iterating and visiting a tree of a
+ *        million nodes allocates almost nothing.  The flip side is
+ *        that a view returned by an iterator is only valid until the
+ *        next call to next(), and a node passed to a visitor is only
+ *        valid during the visit.
+ */
+public class FlatExpressionTree extends ExpressionTree {
+    /** Handle of a missing node. */
+    public final static int NULL_HANDLE = -1;
+
+    /**
+     * @class Nodes
+     *
+     * @brief The arrays that hold the nodes of a tree, along with the
+     *        flyweights used to visit them.  All the views of the
+     *        tree share one instance.
+     */
+    public static class Nodes {
+        /**
+         * The kind of each node, i.e., one of the instruction
+         * opcodes of @a ExpressionProgram.
+         */
+        private int[] kinds;
+
+        /** The handle of the left child of each node. */
+        private int[] lefts;
+
+        /** The handle of the right child of each node. */
+        private int[] rights;
+
+        /**
+         * The handle of the first node of the subtree rooted at each
+         * node, i.e., the first one visited in post-order.
+         */
+        private int[] firsts;
+
+        /**
+         * The value of each constant node, or the symbol table slot of
+         * each variable node.
+         */
+        private int[] values;
+
+        /** Number of nodes. */
+        private int size;
+
+        /** Symbol table that holds the values of the variables. */
+        private Interpreter.SymbolTable symbolTable;
+
+        /** Lazily created @a ComponentNode for each node. */
+        private ComponentNode[] materialized;
+
+        /** Handle of the node the flyweights currently stand for. */
+        private int current;
+
+        /** Flyweight passed to visitors for constant nodes. */
+        private final LeafNode leaf = new LeafNode(0) {
+                public int item() {
+                    return values[current];
+                }
+            };
+
+        /** Flyweight passed to visitors for variable nodes. */
+        private final VariableNode variable = new VariableNode(null, 0, null) {
+                public int item() {
+                    return symbolTable.get(values[current]);
+                }
+
+                public String name() {
+                    return symbolTable.name(values[current]);
+                }
+
+                public int slot() {
+                    return values[current];
+                }
+
+                public Interpreter.SymbolTable symbolTable() {
+                    return symbolTable;
+                }
+            };
+
+        /** Ctor */
+        public Nodes(int capacity) {
+            capacity = Math.max(capacity, 1);
+            kinds = new int[capacity];
+            lefts = new int[capacity];
+            rights = new int[capacity];
+            firsts = new int[capacity];
+            values = new int[capacity];
+        }
+
+        /** Returns the number of nodes. */
+        public int size() {
+            return size;
+        }
+
+        /** Add a constant node holding @a value. */
+        public int constant(int value) {
+            return add(ExpressionProgram.CONSTANT, NULL_HANDLE, NULL_HANDLE, value);
+        }
+
+        /**
+         * Add a variable node for the @a slot of @a symbolTable, which
+         * must be the same for all the variables in the tree.
+         */
+        public int variable(int slot, Interpreter.SymbolTable symbolTable) {
+            if (this.symbolTable == null)
+                this.symbolTable = symbolTable;
+            else if (this.symbolTable != symbolTable)
+                throw new IllegalArgumentException
+                    ("All variables must share one symbol table");
+
+            return add(ExpressionProgram.VARIABLE, NULL_HANDLE, NULL_HANDLE, slot);
+        }
+
+        /**
+         * Add an operator node of the designated @a kind, which must
+         * be one of the operator opcodes of @a ExpressionProgram.
+         * Its children must already have been added.
+         */
+        public int operator(int kind, int left, int right) {
+            if (kind <= ExpressionProgram.VARIABLE
+                || kind > ExpressionProgram.DIVIDE)
+                throw new IllegalArgumentException(kind + " is not an operator");
+            /**
+             * Keep the nodes in post-order, so each subtree occupies
+             * the range of handles that ends at its root.
+             */
+            int last = size - 1;
+            if (right != NULL_HANDLE) {
+                if (right != last)
+                    throw new IllegalArgumentException
+                        ("Operands must be added in post-order");
+                last = firsts[right] - 1;
+            }
+            if (left != NULL_HANDLE && left != last)
+                throw new IllegalArgumentException
+                    ("Operands must be added in post-order");
+
+            return add(kind, left, right, 0);
+        }
+
+        /** Release the capacity beyond the current number of nodes. */
+        public void trim() {
+            if (size < kinds.length) {
+                int capacity = Math.max(size, 1);
+                kinds = Arrays.copyOf(kinds, capacity);
+                lefts = Arrays.copyOf(lefts, capacity);
+                rights = Arrays.copyOf(rights, capacity);
+                firsts = Arrays.copyOf(firsts, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+        }
+
+        /** Append a node, growing the arrays if necessary. */
+        private int add(int kind, int left, int right, int value) {
+            if (size == kinds.length) {
+                int capacity = size * 2;
+                kinds = Arrays.copyOf(kinds, capacity);
+                lefts = Arrays.copyOf(lefts, capacity);
+                rights = Arrays.copyOf(rights, capacity);
+                firsts = Arrays.copyOf(firsts, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+
+            kinds[size] = kind;
+            lefts[size] = left;
+            rights[size] = right;
+            firsts[size] = left != NULL_HANDLE ? firsts[left]
+                : right != NULL_HANDLE ? firsts[right]
+                : size;
+            values[size] = value;
+            materialized = null;
+            return size++;
+        }
+    }
+
+    /** Stateless flyweights passed to visitors for operator nodes. */
+    private final static CompositeNegateNode negate =
+        new CompositeNegateNode(null);
+    private final static CompositeAddNode add =
+        new CompositeAddNode(null, null);
+    private final static CompositeSubtractNode subtract =
+        new CompositeSubtractNode(null, null);
+    private final static CompositeMultiplyNode multiply =
+        new CompositeMultiplyNode(null, null);
+    private final static CompositeDivideNode divide =
+        new CompositeDivideNode(null, null);
+
+    /** The nodes of the tree this is a view of. */
+    private final Nodes nodes;
+
+    /** Handle of the node this is a view of. */
+    private int handle;
+
+    /** Ctor that makes a view of node @a handle of @a nodes. */
+    public FlatExpressionTree(Nodes nodes, int handle) {
+        super(null);
+        this.nodes = nodes;
+        this.handle = handle;
+    }
+
+    /** Returns the nodes of the tree. */
+    public Nodes nodes() {
+        return nodes;
+    }
+
+    /** Returns the handle of the node this is a view of. */
+    public int handle() {
+        return handle;
+    }
+
+    /** Returns the kind of node @a handle. */
+    public int kind(int handle) {
+        return nodes.kinds[handle];
+    }
+
+    /** Returns the handle of the left child of node @a handle. */
+    public int left(int handle) {
+        return nodes.lefts[handle];
+    }
+
+    /** Returns the handle of the right child of node @a handle. */
+    public int right(int handle) {
+        return nodes.rights[handle];
+    }
+
+    /**
+     * Returns the value of constant node @a handle, or the slot of
+     * variable node @a handle.
+     */
+    public int value(int handle) {
+        return nodes.values[handle];
+    }
+
+    /**
+     * Returns the handle of the first node of the subtree rooted at
+     * @a handle, i.e., the first node visited in post-order.
+     */
+    public int first(int handle) {
+        return nodes.firsts[handle];
+    }
+
+    /** Move this view to node @a handle. */
+    void moveTo(int handle) {
+        this.handle = handle;
+    }
+
+    /** Returns whether a the tree is null. */
+    @Override
+    public boolean isNull() {
+        return handle == NULL_HANDLE;
+    }
+
+    /**
+     * Returns the root as a @a ComponentNode.  The whole tree is
+     * converted to objects the first time this is called.
+     */
+    @Override
+    public ComponentNode getRoot() {
+        if (handle == NULL_HANDLE)
+            return null;
+
+        if (nodes.materialized == null) {
+            /** Children precede their parents, so one pass will do. */
+            ComponentNode[] built = new ComponentNode[nodes.size];
+
+            for (int h = 0; h < nodes.size; ++h) {
+                ComponentNode left =
+                    nodes.lefts[h] == NULL_HANDLE ? null : built[nodes.lefts[h]];
+                ComponentNode right =
+                    nodes.rights[h] == NULL_HANDLE ? null : built[nodes.rights[h]];
+
+                switch (nodes.kinds[h]) {
+                case ExpressionProgram.CONSTANT:
+                    built[h] = new LeafNode(nodes.values[h]);
+                    break;
+                case ExpressionProgram.VARIABLE:
+                    built[h] = new VariableNode(nodes.symbolTable.name(nodes.values[h]),
+                                                nodes.values[h],
+                                                nodes.symbolTable);
+                    break;
+                case ExpressionProgram.NEGATE:
+                    built[h] = new CompositeNegateNode(right);
+                    break;
+                case ExpressionProgram.ADD:
+                    built[h] = new CompositeAddNode(left, right);
+                    break;
+                case ExpressionProgram.SUBTRACT:
+                    built[h] = new CompositeSubtractNode(left, right);
+                    break;
+                case ExpressionProgram.MULTIPLY:
+                    built[h] = new CompositeMultiplyNode(left, right);
+                    break;
+                case ExpressionProgram.DIVIDE:
+                    built[h] = new CompositeDivideNode(left, right);
+                    break;
+                }
+            }
+
+            nodes.materialized = built;
+        }
+
+        return nodes.materialized[handle];
+    }
+
+    /** Returns the root item. */
+    @Override
+    public int item() throws Exception {
+        switch (nodes.kinds[handle]) {
+        case ExpressionProgram.CONSTANT: return nodes.values[handle];
+        case ExpressionProgram.VARIABLE: return nodes.symbolTable.get(nodes.values[handle]);
+        case ExpressionProgram.NEGATE: return '-';
+        case ExpressionProgram.ADD: return '+';
+        case ExpressionProgram.SUBTRACT: return '-';
+        case ExpressionProgram.MULTIPLY: return '*';
+        default: return '/';
+        }
+    }
+
+    /** Returns the tree's left node. */
+    @Override
+    public ExpressionTree left() {
+        return new FlatExpressionTree(nodes, nodes.lefts[handle]);
+    }
+
+    /** Returns the tree's right node. */
+    @Override
+    public ExpressionTree right() {
+        return new FlatExpressionTree(nodes, nodes.rights[handle]);
+    }
+
+    /** Accepts a @a visitor. */
+    @Override
+    public void accept(Visitor visitor) {
+        switch (nodes.kinds[handle]) {
+        case ExpressionProgram.CONSTANT:
+            nodes.current = handle;
+            visitor.visit(nodes.leaf);
+            break;
+        case ExpressionProgram.VARIABLE:
+            nodes.current = handle;
+            visitor.visit(nodes.variable);
+            break;
+        case ExpressionProgram.NEGATE: visitor.visit(negate); break;
+        case ExpressionProgram.ADD: visitor.visit(add); break;
+        case ExpressionProgram.SUBTRACT: visitor.visit(subtract); break;
+        case ExpressionProgram.MULTIPLY: visitor.visit(multiply); break;
+        case ExpressionProgram.DIVIDE: visitor.visit(divide); break;
+        }
+    }
+
+    /**
+     * This interface uses the Command pattern to create cursor
+     * iterators at runtime.
+     */
+    private static interface ICursorIteratorFactoryCommand {
+        public Iterator<ExpressionTree> execute(FlatExpressionTree tree);
+    }
+
+    /**
+     * Map used to validate input requests for cursor iterators and
+     * dispatch the execute() method of the requested iterator.
+     */
+    private final static HashMap<String, ICursorIteratorFactoryCommand> traversalMap =
+        new HashMap<>();
+
+    static {
+        traversalMap.put("in-order", tree -> new InOrderCursor(tree));
+        traversalMap.put("pre-order", tree -> new PreOrderCursor(tree));
+        traversalMap.put("post-order", tree -> new PostOrderCursor(tree));
+        traversalMap.put("level-order", tree -> new LevelOrderCursor(tree));
+    }
+
+    /**
+     * Returns an @a Iterator that supports the requested
+     * traveralOrder.  It visits the nodes in the same order as the
+     * corresponding @a ComponentNode iterator, and likewise returns
+     * the same view, moved to the next node, from each next().
+     */
+    @Override
+    public Iterator<ExpressionTree> makeIterator(String traversalOrderRequest) {
+        if (traversalOrderRequest.equals(""))
+            /**
+             * Default to in-order if user doesn't explicitly request
+             * a traversal order.
+             */
+            traversalOrderRequest = "in-order";
+
+        ICursorIteratorFactoryCommand command =
+            traversalMap.get(traversalOrderRequest);
+
+        if (command != null)
+            return command.execute(this);
+        else
+            throw new IllegalArgumentException
+                (traversalOrderRequest
+                 + " is not a supported traversal order");
+    }
+
+    /**
+     * @class Cursor
+     *
+     * @brief Base class of the iterators, which keep the handles of
+     *        pending nodes in an int array and return a single view
+     *        that's moved to each node in turn.
+     */
+    private abstract static class Cursor implements Iterator<ExpressionTree> {
+        /** The view returned by next(). */
+        protected final FlatExpressionTree cursor;
+
+        /** Handles of the pending nodes. */
+        protected int[] pending = new int[16];
+
+        /** Number of pending handles. */
+        protected int count;
+
+        Cursor(FlatExpressionTree tree) {
+            cursor = new FlatExpressionTree(tree.nodes, NULL_HANDLE);
+        }
+
+        /** Add @a handle to the pending nodes if it's not null. */
+        protected void push(int handle) {
+            if (handle == NULL_HANDLE)
+                return;
+            if (count == pending.length)
+                pending = Arrays.copyOf(pending, count * 2);
+            pending[count++] = handle;
+        }
+
+        /** Returns the view moved to node @a handle. */
+        protected ExpressionTree visit(int handle) {
+            cursor.moveTo(handle);
+            return cursor;
+        }
+
+        public boolean hasNext() {
+            return count > 0;
+        }
+    }
+
+    /**
+     * @class InOrderCursor
+     *
+     * @brief Iterates in-order, i.e., left subtree, node, right
+     *        subtree.
+     */
+    private static class InOrderCursor extends Cursor {
+        InOrderCursor(FlatExpressionTree tree) {
+            super(tree);
+            pushLeftmost(tree.handle);
+        }
+
+        /** Push @a handle and the chain of its left descendants. */
+        private void pushLeftmost(int handle) {
+            for (; handle != NULL_HANDLE; handle = cursor.left(handle))
+                push(handle);
+        }
+
+        public ExpressionTree next() {
+            if (count == 0)
+                throw new NoSuchElementException();
+
+            int handle = pending[--count];
+            pushLeftmost(cursor.right(handle));
+            return visit(handle);
+        }
+    }
+
+    /**
+     * @class PreOrderCursor
+     *
+     * @brief Iterates in pre-order, i.e., node, left subtree, right
+     *        subtree.
+     */
+    private static class PreOrderCursor extends Cursor {
+        PreOrderCursor(FlatExpressionTree tree) {
+            super(tree);
+            push(tree.handle);
+        }
+
+        public ExpressionTree next() {
+            if (count == 0)
+                throw new NoSuchElementException();
+
+            int handle = pending[--count];
+            /** Right first, so the left pops off first. */
+            push(cursor.right(handle));
+            push(cursor.left(handle));
+            return visit(handle);
+        }
+    }
+
+    /**
+     * @class PostOrderCursor
+     *
+     * @brief Iterates in post-order, i.e., left subtree, right
+     *        subtree, node.  Since the nodes are stored in post-order,
+     *        this just walks the subtree's range of handles.
+     */
+    private static class PostOrderCursor extends Cursor {
+        /** The next handle to return. */
+        private int next;
+
+        /** The handle of the root of the subtree. */
+        private final int last;
+
+        PostOrderCursor(FlatExpressionTree tree) {
+            super(tree);
+            last = tree.handle;
+            next = last == NULL_HANDLE ? 0 : tree.first(last);
+            count = last == NULL_HANDLE ? 0 : last - next + 1;
+        }
+
+        public ExpressionTree next() {
+            if (count == 0)
+                throw new NoSuchElementException();
+
+            --count;
+            return visit(next++);
+        }
+    }
+
+    /**
+     * @class LevelOrderCursor
+     *
+     * @brief Iterates level by level, visiting the right child of
+     *        each node before its left child just like the @a
+     *        LevelOrderNodeIterator.
+     */
+    private static class LevelOrderCursor extends Cursor {
+        /** Index of the front of the queue in @a pending. */
+        private int front;
+
+        LevelOrderCursor(FlatExpressionTree tree) {
+            super(tree);
+            push(tree.handle);
+        }
+
+        public boolean hasNext() {
+            return front < count;
+        }
+
+        public ExpressionTree next() {
+            if (front == count)
+                throw new NoSuchElementException();
+
+            int handle = pending[front++];
+            push(cursor.right(handle));
+            push(cursor.left(handle));
+            return visit(handle);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.expressiontree.server;
+
+import java.util.Arrays;
+
+/**
+ * @class FlatExpressionTreeFactory
+ * 
+ * @brief A factory that creates @a FlatExpressionTree objects, which
+ *        store the nodes of the tree in parallel primitive arrays
+ *        rather than as @a ComponentNode objects.  Install it in an
+ *        @a Interpreter to have every tree it builds flattened.
+ */
+public class FlatExpressionTreeFactory extends ExpressionTreeFactory {
+    /** 
+     * Create a new @a FlatExpressionTree that holds the nodes of the
+     * tree rooted at @a componentNodeRoot.
+     */
+    @Override
+    public ExpressionTree makeExpressionTree(ComponentNode componentNodeRoot) {
+        if (componentNodeRoot == null)
+            return new ExpressionTree(null);
+
+        FlatExpressionTree.Nodes nodes = new FlatExpressionTree.Nodes(64);
+
+        /** 
+         * Walk the tree in post-order with explicit stacks, so that
+         * deeply nested trees don't overflow the thread stack.  Each
+         * node is pushed once to visit its children and, after they
+         * have been added, once more to add the node itself.
+         */
+        ComponentNode[] stack = new ComponentNode[16];
+        boolean[] expanded = new boolean[16];
+        int[] handles = new int[16];
+        int depth = 0;
+        int handleCount = 0;
+
+        stack[depth++] = componentNodeRoot;
+
+        while (depth > 0) {
+            ComponentNode node = stack[--depth];
+
+            if (!expanded[depth]) {
+                if (depth + 3 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                    expanded = Arrays.copyOf(expanded, expanded.length * 2);
+                }
+
+                expanded[depth++] = true;
+                if (node.right() != null) {
+                    stack[depth] = node.right();
+                    expanded[depth++] = false;
+                }
+                if (node.left() != null) {
+                    stack[depth] = node.left();
+                    expanded[depth++] = false;
+                }
+                continue;
+            }
+
+            int right = node.right() == null
+                ? FlatExpressionTree.NULL_HANDLE
+                : handles[--handleCount];
+            int left = node.left() == null
+                ? FlatExpressionTree.NULL_HANDLE
+                : handles[--handleCount];
+
+            if (handleCount == handles.length)
+                handles = Arrays.copyOf(handles, handles.length * 2);
+            handles[handleCount++] = add(nodes, node, left, right);
+        }
+
+        nodes.trim();
+        return new FlatExpressionTree(nodes, handles[0]);
+    }
+
+    /** Add a node of the same type as @a node to @a nodes. */
+    private static int add(FlatExpressionTree.Nodes nodes,
+                           ComponentNode node,
+                           int left,
+                           int right) {
+        if (node instanceof LeafNode)
+            return nodes.constant(node.item());
+        else if (node instanceof VariableNode) {
+            VariableNode variable = (VariableNode) node;
+            return nodes.variable(variable.slot(), variable.symbolTable());
+        } else if (node instanceof CompositeNegateNode)
+            return nodes.operator(ExpressionProgram.NEGATE, left, right);
+        else if (node instanceof CompositeAddNode)
+            return nodes.operator(ExpressionProgram.ADD, left, right);
+        else if (node instanceof CompositeSubtractNode)
+            return nodes.operator(ExpressionProgram.SUBTRACT, left, right);
+        else if (node instanceof CompositeMultiplyNode)
+            return nodes.operator(ExpressionProgram.MULTIPLY, left, right);
+        else if (node instanceof CompositeDivideNode)
+            return nodes.operator(ExpressionProgram.DIVIDE, left, right);
+        else
+            throw new IllegalArgumentException
+                (node.getClass().getSimpleName() + " can't be flattened");
+    }
+}
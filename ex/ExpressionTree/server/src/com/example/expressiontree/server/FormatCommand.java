@@ -22,13 +22,13 @@ public class FormatCommand extends UserCommand {
     }
 
     /** Set the desired format. */
-    public void execute() throws Exception {
+    public void execute(Platform platform) throws Exception {
         treeOps.format(format);
     }
 
     /** Print the valid commands available to users. */
-    public void printValidCommands(boolean verboseField) {
-        Platform platform = Platform.instance();
+    public void printValidCommands(boolean verboseField,
+                                   Platform platform) {
     	platform.disableAll(verboseField);
         platform.outputMenu("",
                             "",
@@ -38,7 +38,7 @@ public class FormatCommand extends UserCommand {
                             "[expression]");
         platform.outputMenu("2a.",
                             "eval",
-                            "[post-order]");
+                            "[post-order | compiled]");
         platform.outputMenu("2b.",
                             "print", "[in-order | pre-order | post-order| level-order]");
         platform.outputMenu("0b.",
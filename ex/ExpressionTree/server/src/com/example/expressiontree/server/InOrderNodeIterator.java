@@ -0,0 +1,32 @@
+package com.example.expressiontree.server;
+
+/**
+ * @class InOrderNodeIterator
+ * 
+ * @brief Iterates through the @a ComponentNode objects of a tree
+ *        using in-order traversal without allocating a wrapper per
+ *        node.  Plays the role of the "ConcreteStrategy" in the
+ *        Strategy pattern that defines the in-order iteration
+ *        algorithm.
+ */
+public class InOrderNodeIterator extends NodeIterator {
+    /** Ctor */
+    public InOrderNodeIterator(ExpressionTree tree) {
+        pushLeftmost(tree.getRoot());
+    }
+
+    /** Push @a node and the chain of its left descendants. */
+    private void pushLeftmost(ComponentNode node) {
+        for (; node != null; node = node.left())
+            push(node);
+    }
+
+    /** Moves iterator to the next node. */
+    public ExpressionTree next() {
+        ComponentNode node = pop();
+
+        /** Nodes greater than this one come next. */
+        pushLeftmost(node.right());
+        return visit(node);
+    }
+}
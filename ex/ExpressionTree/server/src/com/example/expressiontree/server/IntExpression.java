@@ -0,0 +1,20 @@
+package com.example.expressiontree.server;
+
+/**
+ * @class IntExpression
+ *
+ * @brief Interface implemented by the classes the @a
+ *        ExpressionClassGenerator generates at runtime, each of which
+ *        evaluates one expression with straight-line JVM bytecode.
+ *        It must be public since the generated classes are defined
+ *        by their own class loader, i.e., in a different runtime
+ *        package.
+ */
+public interface IntExpression {
+    /** 
+     * Returns the yield of the expression given the variable values
+     * in @a vars, which is indexed by symbol table slot.  Throws @a
+     * ArithmeticException on division by zero.
+     */
+    int eval(int[] vars);
+}
@@ -0,0 +1,22 @@
+package com.example.expressiontree.server;
+
+/**
+ * @class InternedExpressionTree
+ *
+ * @brief An @a ExpressionTree whose structurally identical subtrees
+ *        are shared, i.e., its nodes form a DAG rather than a tree.
+ *        Iterators and visitors still see every occurrence of a
+ *        shared subtree, so printing and "eval post-order" behave
+ *        exactly as they do for an ordinary tree, but @a
+ *        State.compileTree() compiles each shared subtree only once.
+ *        It's created by the @a InterningExpressionTreeFactory.
+ */
+public class InternedExpressionTree extends ExpressionTree {
+    /**
+     * Ctor that takes the root of the DAG that contains all the
+     * nodes in the expression tree.
+     */
+    public InternedExpressionTree(ComponentNode root) {
+        super(root);
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.expressiontree.server;
+
+import java.util.HashMap;
+
+/**
+ * @class InterningExpressionTreeFactory
+ *
+ * @brief A factory that hash-conses the nodes of the trees it
+ *        creates, i.e., it returns the node it already created for a
+ *        structurally identical subtree rather than creating a new
+ *        one.  A tree that repeats a subexpression (e.g., "(a+b)*(a+b)")
+ *        is thus stored as a DAG with one node per distinct
+ *        subexpression and wrapped in an @a InternedExpressionTree,
+ *        whose compiled program computes each shared subexpression
+ *        only once per evaluation.  Install it in an @a Interpreter
+ *        to have every tree it builds interned.
+ */
+public class InterningExpressionTreeFactory extends ExpressionTreeFactory {
+    /**
+     * The nodes created for the tree that's being built, keyed by
+     * their structure.  Since the children of a node are interned
+     * before it is, two subtrees are identical exactly when their
+     * roots have the same kind, value, and child nodes.
+     */
+    private HashMap<Key, ComponentNode> nodes = new HashMap<>();
+
+    /** Reused to look up nodes without allocating a new key. */
+    private Key probe = new Key();
+
+    /**
+     * Create a new @a InternedExpressionTree that encapsulates the
+     * DAG rooted at @a componentNodeRoot and start interning the
+     * next tree from scratch, so the nodes of old trees aren't kept
+     * alive by this factory.
+     */
+    @Override
+    public ExpressionTree makeExpressionTree(ComponentNode componentNodeRoot) {
+        nodes.clear();
+
+        if (componentNodeRoot == null)
+            return new ExpressionTree(null);
+        return new InternedExpressionTree(componentNodeRoot);
+    }
+
+    /** Returns the @a LeafNode that holds @a item. */
+    @Override
+    public ComponentNode makeLeafNode(int item) {
+        ComponentNode node = lookup(ExpressionProgram.CONSTANT, item, null, null);
+        return node != null
+            ? node
+            : intern(super.makeLeafNode(item));
+    }
+
+    /** Returns the @a VariableNode for @a slot of @a symbolTable. */
+    @Override
+    public ComponentNode makeVariableNode(String name,
+                                          int slot,
+                                          Interpreter.SymbolTable symbolTable) {
+        ComponentNode node = lookup(ExpressionProgram.VARIABLE, slot, symbolTable, null);
+        return node != null
+            ? node
+            : intern(super.makeVariableNode(name, slot, symbolTable));
+    }
+
+    /** Returns the @a CompositeNegateNode whose child is @a right. */
+    @Override
+    public ComponentNode makeNegateNode(ComponentNode right) {
+        ComponentNode node = lookup(ExpressionProgram.NEGATE, 0, null, right);
+        return node != null
+            ? node
+            : intern(super.makeNegateNode(right));
+    }
+
+    /** Returns the @a CompositeAddNode with the given children. */
+    @Override
+    public ComponentNode makeAddNode(ComponentNode left,
+                                     ComponentNode right) {
+        ComponentNode node = lookup(ExpressionProgram.ADD, 0, left, right);
+        return node != null
+            ? node
+            : intern(super.makeAddNode(left, right));
+    }
+
+    /** Returns the @a CompositeSubtractNode with the given children. */
+    @Override
+    public ComponentNode makeSubtractNode(ComponentNode left,
+                                          ComponentNode right) {
+        ComponentNode node = lookup(ExpressionProgram.SUBTRACT, 0, left, right);
+        return node != null
+            ? node
+            : intern(super.makeSubtractNode(left, right));
+    }
+
+    /** Returns the @a CompositeMultiplyNode with the given children. */
+    @Override
+    public ComponentNode makeMultiplyNode(ComponentNode left,
+                                          ComponentNode right) {
+        ComponentNode node = lookup(ExpressionProgram.MULTIPLY, 0, left, right);
+        return node != null
+            ? node
+            : intern(super.makeMultiplyNode(left, right));
+    }
+
+    /** Returns the @a CompositeDivideNode with the given children. */
+    @Override
+    public ComponentNode makeDivideNode(ComponentNode left,
+                                        ComponentNode right) {
+        ComponentNode node = lookup(ExpressionProgram.DIVIDE, 0, left, right);
+        return node != null
+            ? node
+            : intern(super.makeDivideNode(left, right));
+    }
+
+    /**
+     * Returns the node already created with the given structure, or
+     * null if there isn't one, in which case the structure is left
+     * in the @a probe for @a intern().
+     */
+    private ComponentNode lookup(int kind,
+                                 int value,
+                                 Object left,
+                                 ComponentNode right) {
+        probe.kind = kind;
+        probe.value = value;
+        probe.left = left;
+        probe.right = right;
+        return nodes.get(probe);
+    }
+
+    /** Remember the @a node whose structure is in the @a probe. */
+    private ComponentNode intern(ComponentNode node) {
+        nodes.put(probe, node);
+        probe = new Key();
+        return node;
+    }
+
+    /**
+     * @class Key
+     *
+     * @brief The structure of a node, i.e., its kind (one of the @a
+     *        ExpressionProgram opcodes), its value or variable slot,
+     *        and its (already interned) children, which are compared
+     *        by identity.  The left child of a @a VariableNode is its
+     *        symbol table.
+     */
+    private static final class Key {
+        int kind;
+        int value;
+        Object left;
+        ComponentNode right;
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key))
+                return false;
+            Key key = (Key) other;
+            return kind == key.kind
+                && value == key.value
+                && left == key.left
+                && right == key.right;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = kind * 31 + value;
+            hash = hash * 31 + System.identityHashCode(left);
+            return hash * 31 + System.identityHashCode(right);
+        }
+    }
+}
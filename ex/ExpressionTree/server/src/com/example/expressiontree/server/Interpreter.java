@@ -1,6 +1,9 @@
 package com.example.expressiontree.server;
 
+import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Stack;
 
@@ -16,8 +19,11 @@ import java.util.Stack;
  *        Composite-based expression tree.
  */
 public class Interpreter {
-    /** Stores numbers with multiple digits. */
-    private int multiDigitNumbers;
+    /** Scans the input expression into a reusable token buffer. */
+    private Lexer lexer = new Lexer();
+
+    /** Stores the index of the last operand token that was parsed. */
+    private int lastOperandToken;
 
     /** Stores the previous symbol. */
     private Symbol lastValidInput;
@@ -48,46 +54,132 @@ public class Interpreter {
      * 
      * @brief This class stores variables and their values for use by
      *        the Interpreter.  It plays the role of the "Context" in
-     *        the Interpreter pattern.
+     *        the Interpreter pattern.  Each variable name is interned
+     *        to an integer slot when an expression is parsed, and the
+     *        values are stored unboxed in an array indexed by slot,
+     *        so evaluation never has to hash the variable name.
      */
-    public class SymbolTable {
-        /** Hash table containing variable names and values. */
-        private HashMap<String, Integer> map =
+    public static class SymbolTable {
+        /** Hash table mapping variable names to their slots. */
+        private HashMap<String, Integer> slots =
             new HashMap<String, Integer>();
 
+        /** The name of the variable in each slot. */
+        private String[] names = new String[8];
+
+        /** The value of the variable in each slot. */
+        private int[] values = new int[8];
+
+        /** Whether each slot has been set since the last reset(). */
+        private boolean[] bound = new boolean[8];
+
         /** Ctor */
         public SymbolTable() {
         }
 
-        public int get(String variable) {
-            /** If variable isn't set then assign it a 0 value. */
-            if(map.get(variable) != null)
-                return map.get(variable);
-            else {
-                map.put(variable, 0);
-                return map.get(variable);
+        /** 
+         * Returns the slot of @a variable, allocating a new slot
+         * (whose value is 0) the first time a name is seen.
+         */
+        public int slot(String variable) {
+            Integer slot = slots.get(variable);
+
+            if (slot != null)
+                return slot;
+
+            int size = slots.size();
+            if (size == values.length) {
+                names = Arrays.copyOf(names, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+                bound = Arrays.copyOf(bound, size * 2);
             }
+
+            names[size] = variable;
+            slots.put(variable, size);
+            return size;
+        }
+
+        /** Returns the number of slots that have been allocated. */
+        public int size() {
+            return slots.size();
+        }
+
+        /** Returns the name of the variable in @a slot. */
+        public String name(int slot) {
+            return names[slot];
+        }
+
+        /** Returns the value of the variable in @a slot. */
+        public int get(int slot) {
+            return values[slot];
+        }
+
+        /** 
+         * Returns the value of @a variable, which is 0 if it isn't
+         * set.
+         */
+        public int get(String variable) {
+            Integer slot = slots.get(variable);
+            return slot == null ? 0 : values[slot];
         }
 
         /** Set the value of a variable. */
         public void set(String variable, int value) {
-            map.put(variable, value);
+            set(slot(variable), value);
+        }
+
+        /** Set the value of the variable in @a slot. */
+        public void set(int slot, int value) {
+            values[slot] = value;
+            bound[slot] = true;
+        }
+
+        /** Set the values of all the variables in @a bindings. */
+        public void setAll(Map<String, Integer> bindings) {
+            for (Entry<String, Integer> entry : bindings.entrySet())
+                set(entry.getKey(), entry.getValue());
+        }
+
+        /** 
+         * Set the value of each of the @a variables to the value at
+         * the same index in @a newValues.
+         */
+        public void setAll(String[] variables, int[] newValues) {
+            if (variables.length != newValues.length)
+                throw new IllegalArgumentException
+                    ("Must have one value per variable");
+
+            for (int i = 0; i < variables.length; ++i)
+                set(slot(variables[i]), newValues[i]);
         }
 
         /** 
-         * Print all variables and their values as an aid for
-         * debugging.
+         * Returns the array of values indexed by slot.  It's only
+         * valid until the next slot is allocated.
          */
-        public void print() {
-            for (Entry<String, Integer> entry : map.entrySet())
-                Platform.instance().outputLine((entry.getKey()
-                                                + " = "
-                                                + entry.getValue()));
+        int[] values() {
+            return values;
         }
 
-        /** Clear all variables and their values. */
+        /** 
+         * Print all variables and their values on the @a platform as
+         * an aid for debugging.
+         */
+        public void print(Platform platform) {
+            for (int slot = 0; slot < slots.size(); ++slot)
+                if (bound[slot])
+                    platform.outputLine((names[slot]
+                                         + " = "
+                                         + values[slot]));
+        }
+
+        /** 
+         * Clear all variables and their values.  The slots stay
+         * allocated since expression trees may still refer to them.
+         */
         public void reset() {
-            map.clear();
+            Arrays.fill(values, 0);
+            Arrays.fill(bound, false);
         }
     }
 
@@ -104,6 +196,21 @@ public class Interpreter {
         return symbolTable;
     }
 
+    /** 
+     * Accessor for the buffer holding the tokens of the most
+     * recently parsed input.
+     */
+    Lexer lexer() {
+        return lexer;
+    }
+
+    /** 
+     * Accessor for the factory that makes an expression tree. 
+     */
+    ExpressionTreeFactory expressionTreeFactory() {
+        return expressionTreeFactory;
+    }
+
     /**
      * Provide a default implementation of the @a
      * ExpressionTreeFactory.
@@ -127,7 +234,7 @@ public class Interpreter {
      * build an expression tree out of the parse tree.  It's
      * implemented using the Template Method pattern.
      */
-    ExpressionTree interpret(String inputExpression) {
+    public ExpressionTree interpret(String inputExpression) {
         /** The parseTree is implemented as a Stack. */
         Stack<Symbol> parseTree =
             buildParseTree(inputExpression);
@@ -158,26 +265,25 @@ public class Interpreter {
         // handling unary minus (negation) operators.
         lastValidInput = null;
 
-        boolean handled = false;
-
         /** Initialize some data members to their default values. */
         accumulatedPrecedence = 0;
-        multiDigitNumbers = 0;
+        lastOperandToken = 0;
+
+        /** Scan the entire input into the token buffer once. */
+        lexer.scan(inputExpression);
 
-        for(int index = 0;
-            index < inputExpression.length();
-            ++index) {
+        for(int token = 0;
+            token < lexer.size();
+            ++token) {
             /** 
              * Locate the next symbol in the input and place it
              * into the parse tree according to its precedence.
              */
-            parseTree = parseNextSymbol(inputExpression,
-                                        index,
-                                        handled,
+            parseTree = parseNextSymbol(token,
                                         parseTree);
 
-            if(multiDigitNumbers > index)
-                index = multiDigitNumbers;
+            if(lastOperandToken > token)
+                token = lastOperandToken;
         }
 
         return parseTree;
@@ -186,9 +292,203 @@ public class Interpreter {
     /**
      * This hook method can be overridden to conduct optimization on
      * the @a parseTree prior to generating the @a ExpressionTree.  By
-     * default it's a no-op.
+     * default it folds constant subtrees into a single @a Number and
+     * simplifies algebraic identities, so evaluating the resulting
+     * @a ExpressionTree never re-walks subtrees that are fully
+     * constant.
      */
     protected void optimizeParseTree(Stack<Symbol> parseTree) {
+        parseTree.push(foldConstants(parseTree.pop()));
+    }
+
+    /**
+     * Rewrite the parse tree rooted at @a root bottom-up and return
+     * the root of the rewritten tree.  The following rewrites are
+     * applied:
+     *
+     * - constant folding, e.g., 2*3 -> 6 and -(4) -> -4
+     * - identities, e.g., x*1 -> x, x+0 -> x, x-0 -> x, x/1 -> x,
+     *   x*0 -> 0, and --x -> x
+     * - strength reduction, e.g., 0-x -> -x, x*-1 -> -x, x/-1 -> -x
+     *
+     * Division by zero is never folded, so it's still reported when
+     * the tree is evaluated.  A malformed subtree is never folded
+     * either, so it still fails when the tree is built.  Since the
+     * @a EvaluationVisitor recovers from a division by zero by
+     * discarding everything evaluated so far, an identity or
+     * strength reduction is only applied when its operand that isn't
+     * a constant can't divide by zero.  That way the optimized tree
+     * always evaluates to the same result as the original one.
+     */
+    private Symbol foldConstants(Symbol root) {
+        ArrayDeque<Symbol> pending = new ArrayDeque<>();
+        ArrayDeque<Symbol> postOrder = new ArrayDeque<>();
+
+        /**
+         * Push the symbols in reverse post-order so they pop off in
+         * post-order, i.e., children before their parents.  An
+         * explicit stack is used so deeply nested input can't
+         * overflow the thread stack.
+         */
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Symbol symbol = pending.pop();
+            postOrder.push(symbol);
+
+            if (symbol instanceof Operator && symbol.left != null)
+                pending.push(symbol.left);
+            if (!(symbol instanceof Operand) && symbol.right != null)
+                pending.push(symbol.right);
+        }
+
+        /**
+         * The rewritten subtrees, along with whether each one may
+         * divide by zero when it's evaluated.
+         */
+        Symbol[] folded = new Symbol[16];
+        boolean[] mayFault = new boolean[16];
+        int size = 0;
+
+        while (!postOrder.isEmpty()) {
+            Symbol symbol = postOrder.pop();
+            Symbol right = null, left = null;
+            boolean rightFaults = false, leftFaults = false;
+
+            if (!(symbol instanceof Operand) && symbol.right != null) {
+                right = folded[--size];
+                rightFaults = mayFault[size];
+            }
+            if (symbol instanceof Operator && symbol.left != null) {
+                left = folded[--size];
+                leftFaults = mayFault[size];
+            }
+
+            Symbol result = symbol;
+            boolean faults = leftFaults || rightFaults;
+
+            /**
+             * A malformed subtree that's missing an operand is
+             * treated like one that may fault, so it's never dropped
+             * and still fails when the tree is built.
+             */
+            if ((!(symbol instanceof Operand) && right == null)
+                || (symbol instanceof Operator && left == null))
+                faults = true;
+
+            if (symbol instanceof Negate) {
+                if (right instanceof Number)
+                    result = new Number(-((Number) right).item);
+                else if (right instanceof Negate && right.right != null)
+                    result = right.right;
+                else
+                    symbol.right = right;
+            } else if (symbol instanceof Operator) {
+                result = foldOperator(symbol,
+                                      left, leftFaults,
+                                      right, rightFaults);
+
+                if (symbol instanceof Divide
+                    && result == symbol
+                    && !(isNumber(right) && ((Number) right).item != 0))
+                    faults = true;
+            }
+
+            if (size == folded.length) {
+                folded = Arrays.copyOf(folded, size * 2);
+                mayFault = Arrays.copyOf(mayFault, size * 2);
+            }
+            folded[size] = result;
+            mayFault[size] = faults;
+            ++size;
+        }
+
+        return folded[0];
+    }
+
+    /**
+     * Returns the rewritten form of the binary operator @a symbol
+     * whose children have already been rewritten to @a left and @a
+     * right, or @a symbol itself (with updated children) if no
+     * rewrite applies.
+     */
+    private Symbol foldOperator(Symbol symbol,
+                                Symbol left,
+                                boolean leftFaults,
+                                Symbol right,
+                                boolean rightFaults) {
+        symbol.left = left;
+        symbol.right = right;
+
+        if (isNumber(left) && isNumber(right)) {
+            int lhs = ((Number) left).item;
+            int rhs = ((Number) right).item;
+
+            if (symbol instanceof Add)
+                return new Number(lhs + rhs);
+            else if (symbol instanceof Subtract)
+                return new Number(lhs - rhs);
+            else if (symbol instanceof Multiply)
+                return new Number(lhs * rhs);
+            else if (rhs != 0)
+                return new Number(lhs / rhs);
+            else
+                /** Leave division by zero to the evaluation. */
+                return symbol;
+        }
+
+        if (symbol instanceof Add) {
+            if (isNumber(left, 0) && right != null && !rightFaults)
+                return right;
+            if (isNumber(right, 0) && left != null && !leftFaults)
+                return left;
+        } else if (symbol instanceof Subtract) {
+            if (isNumber(right, 0) && left != null && !leftFaults)
+                return left;
+            if (isNumber(left, 0) && right != null && !rightFaults)
+                return negate(right);
+        } else if (symbol instanceof Multiply) {
+            if (isNumber(left, 1) && right != null && !rightFaults)
+                return right;
+            if (isNumber(right, 1) && left != null && !leftFaults)
+                return left;
+            if (isNumber(left, -1) && right != null && !rightFaults)
+                return negate(right);
+            if (isNumber(right, -1) && left != null && !leftFaults)
+                return negate(left);
+            if (isNumber(left, 0) && right != null && !rightFaults)
+                return left;
+            if (isNumber(right, 0) && left != null && !leftFaults)
+                return right;
+        } else if (symbol instanceof Divide) {
+            if (isNumber(right, 1) && left != null && !leftFaults)
+                return left;
+            if (isNumber(right, -1) && left != null && !leftFaults)
+                return negate(left);
+        }
+
+        return symbol;
+    }
+
+    /** Returns true if @a symbol is a @a Number. */
+    private static boolean isNumber(Symbol symbol) {
+        return symbol instanceof Number;
+    }
+
+    /** Returns true if @a symbol is a @a Number equal to @a value. */
+    private static boolean isNumber(Symbol symbol, int value) {
+        return symbol instanceof Number
+            && ((Number) symbol).item == value;
+    }
+
+    /** Returns a parse tree that negates @a symbol. */
+    private Symbol negate(Symbol symbol) {
+        if (symbol instanceof Negate && symbol.right != null)
+            /** --x -> x */
+            return symbol.right;
+
+        Negate negate = new Negate();
+        negate.right = symbol;
+        return negate;
     }
 
     /** 
@@ -205,25 +505,15 @@ public class Interpreter {
 
     /** Parse next terminal expression. */
     private Stack<Symbol> parseNextSymbol
-        (String inputExpression,
-         int index,
-         boolean handled,
+        (int token,
          Stack<Symbol> parseTree) {
-        handled = false;
-        if(Character.isDigit(inputExpression.charAt(index))) {
-            handled = true;
-            parseTree = insertNumberOrVariable(inputExpression,
-                                               index,
-                                               parseTree,
-                                               false);
-        } else if(Character.isLetterOrDigit(inputExpression.charAt(index))) {
-            handled = true;
-            parseTree = insertNumberOrVariable(inputExpression, 
-                                               index,
-                                               parseTree,
-                                               true);
-        } else if(inputExpression.charAt(index) == '+') {
-            handled = true;
+        switch(lexer.kind(token)) {
+        case Lexer.NUMBER:
+        case Lexer.VARIABLE:
+            parseTree = insertNumberOrVariable(token,
+                                               parseTree);
+            break;
+        case Lexer.ADD: {
             /** Addition operation. */
             Add op = new Add();
             op.addPrecedence(accumulatedPrecedence);
@@ -235,12 +525,10 @@ public class Interpreter {
              * relationships. 
              */
             parseTree = insertSymbolByPrecedence(op, parseTree);
-        } else if(inputExpression.charAt(index) == '-') {
-            handled = true;
-
+            break;
+        }
+        case Lexer.SUBTRACT: {
             Symbol op = null;
-            /** Subtraction operation. */
-            Number number = null;
 
             if (lastValidInput == null) {
                 /** Negate. */
@@ -259,8 +547,9 @@ public class Interpreter {
              * relationships.
              */
             parseTree = insertSymbolByPrecedence(op, parseTree);
-        } else if(inputExpression.charAt(index) == '*') {
-            handled = true;
+            break;
+        }
+        case Lexer.MULTIPLY: {
             /** Multiplication operation. */
             Multiply op = new Multiply();
             op.addPrecedence(accumulatedPrecedence);
@@ -272,9 +561,9 @@ public class Interpreter {
              * relationships. 
              */
             parseTree = insertSymbolByPrecedence(op, parseTree);
+            break;
         }
-        else if(inputExpression.charAt(index) == '/') {
-            handled = true;
+        case Lexer.DIVIDE: {
             /** Division Operation. */
             Divide op = new Divide();
             op.addPrecedence(accumulatedPrecedence);
@@ -286,76 +575,53 @@ public class Interpreter {
              * relationships. 
              */
             parseTree = insertSymbolByPrecedence(op, parseTree);
+            break;
         }
-        else if(inputExpression.charAt(index) == '(') {
-            handled = true;
-            parseTree = handleParentheses(inputExpression,
-                                          index,
-                                          handled,
+        case Lexer.LEFT_PAREN:
+            parseTree = handleParentheses(token,
                                           parseTree);
-        }
-        else if(inputExpression.charAt(index)== ' ' 
-                || inputExpression.charAt(index) == '\n') {
-            handled = true;
-            /** Skip whitespace. */
+            break;
+        default:
+            /** A ')' is handled by handleParentheses(). */
+            break;
         }
 
         return parseTree;
     }
 
     /** Inserts a @a Number into the parse tree. */
-    private Stack<Symbol> insertNumberOrVariable(String input,
-                                                 int startIndex,
-                                                 Stack<Symbol> parseTree,
-                                                 boolean isVariable)  {
-        /** 
-         * Merge all consecutive number chars into a single Number
-         * symbol, eg '123' = int (123). Scope of j needs to be
-         * outside of the for loop.
-         */
-        int endIndex = 1;
-
-        /** 
-         * Explanation for this additional if statement: if input = 1,
-         * an out of bounds exception is thrown as a result of the
-         * charAt() statement.
-         */
-        if(input.length() > startIndex + endIndex)
-            /** Locate the end of the number. */
-            for(;
-                startIndex + endIndex < input.length () 
-                    && Character.isDigit(input.charAt(startIndex + endIndex)); 
-                ++endIndex)
-                continue;
-
-        Number number;
-
-        if (isVariable)
-            /** Lookup the value in the symbolTable. */
-            number =
-                new Number(symbolTable.get(input.substring(startIndex,
-                                                           startIndex 
-                                                           + endIndex)));
-        else
-            number =
-                new Number(input.substring(startIndex,
-                                           startIndex + endIndex));
+    private Stack<Symbol> insertNumberOrVariable(int token,
+                                                 Stack<Symbol> parseTree)  {
+        Symbol number = makeOperand(token);
 
         number.addPrecedence(accumulatedPrecedence);
 
         lastValidInput = number;
 
         /** 
-         * Update startIndex to the last character that was a number.
-         * The ++startIndex will update the startIndex at the end of
-         * the loop to the next check.
+         * Remember the last operand that was consumed so callers
+         * resume parsing after it.
          */
-        startIndex += endIndex - 1;
-        multiDigitNumbers = startIndex;
+        lastOperandToken = token;
 
         return insertSymbolByPrecedence(number, parseTree);
     }
 
+    /** 
+     * Make the @a Symbol for the number or variable at @a token in
+     * the token buffer.
+     */
+    Symbol makeOperand(int token) {
+        if (lexer.kind(token) == Lexer.VARIABLE)
+            /** 
+             * The value is looked up in the symbolTable when the
+             * tree is evaluated.
+             */
+            return new Variable(lexer.text(token));
+        else
+            return new Number(lexer.value(token));
+    }
+
     /** Inserts a @a Symbol into the parse tree. */
     private Stack<Symbol> insertSymbolByPrecedence
         (Symbol symbol,
@@ -430,9 +696,7 @@ public class Interpreter {
     }
 
     private Stack<Symbol> handleParentheses
-        (String inputExpression,
-         int index,
-         boolean handled,
+        (int token,
          Stack<Symbol> masterParseTree) {
         /** 
          * Handling parentheses is a lot like handling the original
@@ -444,20 +708,16 @@ public class Interpreter {
         Stack<Symbol> localParseTree =
             new Stack<Symbol>();
 
-        handled = false;
-        for(++index; 
-            index < inputExpression.length(); 
-            ++index) {
-            localParseTree = parseNextSymbol(inputExpression,
-                                             index,
-                                             handled,
+        for(++token; 
+            token < lexer.size(); 
+            ++token) {
+            localParseTree = parseNextSymbol(token,
                                              localParseTree);
 
-            if(multiDigitNumbers > index)
-                index = multiDigitNumbers;
+            if(lastOperandToken > token)
+                token = lastOperandToken;
 
-            if (inputExpression.charAt(index) == ')') {
-                handled = true;
+            if (lexer.kind(token) == Lexer.RIGHT_PAREN) {
                 accumulatedPrecedence -= parenPrecedence;
                 break;
             }
@@ -532,39 +792,64 @@ public class Interpreter {
 
         /** Abstract method for building a @a ComponentNode. */
         abstract ComponentNode build();
+
+        /**
+         * Abstract method for building a @a ComponentNode from the
+         * already built @a left and @a right children, which lets
+         * callers build the tree without recursion.
+         */
+        abstract ComponentNode build(ComponentNode left,
+                                     ComponentNode right);
     }
 
     /**
-     * @class Symbol
+     * @class Operand
+     *
+     * @brief Defines a base class in the parse tree for terminal
+     *        expressions, which have no children.
+     */
+    abstract class Operand extends Symbol {
+        /** Ctor */
+        Operand() {
+            super(null, null, numberPrecedence);
+        }
+
+        /** 
+         * Adds numberPrecedence to the current accumulatedPrecedence
+         * value.
+         */
+        public int addPrecedence(int accumulatedPrecedence) {
+            return precedence = 
+                numberPrecedence + accumulatedPrecedence;
+        }
+
+        /** Builds a terminal node, which has no children. */
+        ComponentNode build(ComponentNode left,
+                            ComponentNode right) {
+            return build();
+        }
+    }
+
+    /**
+     * @class Number
      *
      * @brief Defines a node in the parse tree for number terminal
      *        expressions.
      */
-    class Number extends Symbol {
+    class Number extends Operand {
         /** Value of Number. */
         public int item;
 
         /** Ctor */
         public Number(String input) {
-            super(null, null, numberPrecedence);
             item = Integer.parseInt(input);
         }
 
         /** Ctor */
         public Number(int input) {
-            super(null, null, numberPrecedence);
             item = input;
         }
 
-        /** 
-         * Adds numberPrecedence to the current accumulatedPrecedence
-         * value.
-         */
-        public int addPrecedence(int accumulatedPrecedence) {
-            return precedence = 
-                numberPrecedence + accumulatedPrecedence;
-        }
-
         /** 
          * Method for returning precedence level (higher value means
          * higher precedence).
@@ -575,7 +860,33 @@ public class Interpreter {
 
         /** Builds a @a LeadNode. */
         ComponentNode build() {
-            return new LeafNode(item);
+            return expressionTreeFactory.makeLeafNode(item);
+        }
+    }
+
+    /**
+     * @class Variable
+     *
+     * @brief Defines a node in the parse tree for variable terminal
+     *        expressions.
+     */
+    class Variable extends Operand {
+        /** Name of the Variable. */
+        public String name;
+
+        /** Ctor */
+        public Variable(String name) {
+            this.name = name;
+        }
+
+        /** 
+         * Builds a @a VariableNode that looks up its value in the
+         * symbolTable slot of this variable when it's evaluated.
+         */
+        ComponentNode build() {
+            return expressionTreeFactory.makeVariableNode(name,
+                                                          symbolTable.slot(name),
+                                                          symbolTable);
         }
     }
 
@@ -631,7 +942,13 @@ public class Interpreter {
 
         /** Method for building a @a Negate node. */
         ComponentNode build() {
-            return new CompositeNegateNode(right.build());
+            return build(null, right.build());
+        }
+
+        /** Method for building a @a Negate node from its child. */
+        ComponentNode build(ComponentNode left,
+                            ComponentNode right) {
+            return expressionTreeFactory.makeNegateNode(right);
         }
 
         /** Returns the current precedence. */
@@ -660,8 +977,15 @@ public class Interpreter {
 
         /** Method for building an @a Add node. */
         ComponentNode build() {
-            return new CompositeAddNode(left.build(),
-                                        right.build());
+            return build(left.build(),
+                         right.build());
+        }
+
+        /** Method for building an @a Add node from its children. */
+        ComponentNode build(ComponentNode left,
+                            ComponentNode right) {
+            return expressionTreeFactory.makeAddNode(left,
+                                                     right);
         }
 
         /** Returns the current precedence. */
@@ -690,8 +1014,15 @@ public class Interpreter {
 
         /** Method for building a @a Subtract node. */
         ComponentNode build() {
-            return new CompositeSubtractNode(left.build(),
-                                             right.build());
+            return build(left.build(),
+                         right.build());
+        }
+
+        /** Method for building a @a Subtract node from its children. */
+        ComponentNode build(ComponentNode left,
+                            ComponentNode right) {
+            return expressionTreeFactory.makeSubtractNode(left,
+                                                          right);
         }
 
         /** Returns the current precedence. */
@@ -720,8 +1051,15 @@ public class Interpreter {
 
         /** Method for building a @a Multiple node. */
         ComponentNode build() {
-            return new CompositeMultiplyNode(left.build(),
-                                             right.build());
+            return build(left.build(),
+                         right.build());
+        }
+
+        /** Method for building a @a Multiply node from its children. */
+        ComponentNode build(ComponentNode left,
+                            ComponentNode right) {
+            return expressionTreeFactory.makeMultiplyNode(left,
+                                                          right);
         }
 
         /** Returns the precedence. */
@@ -755,8 +1093,15 @@ public class Interpreter {
 
         /** Method for building a @a Divide node. */
         ComponentNode build() {
-            return new CompositeDivideNode(left.build(),
-                                           right.build());
+            return build(left.build(),
+                         right.build());
+        }
+
+        /** Method for building a @a Divide node from its children. */
+        ComponentNode build(ComponentNode left,
+                            ComponentNode right) {
+            return expressionTreeFactory.makeDivideNode(left,
+                                                        right);
         }
     }
 }
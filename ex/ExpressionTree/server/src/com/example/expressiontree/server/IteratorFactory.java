@@ -40,36 +40,39 @@ public class IteratorFactory {
 
     	/** 
          * An "in-order" string maps to a command object that creates
-         * an @a InOrderIterator implementation.
+         * an @a InOrderNodeIterator implementation.
          */
         traversalMap.put("in-order", 
-                         tree -> new InOrderIterator(tree));
+                         tree -> new InOrderNodeIterator(tree));
             
     	/** 
          * A "pre-order" string maps to a command object that creates
-         * a @a PreOrderIterator implementation.
+         * a @a PreOrderNodeIterator implementation.
          */
         traversalMap.put("pre-order",
-                         tree -> new PreOrderIterator(tree));
+                         tree -> new PreOrderNodeIterator(tree));
             
     	/** 
          * A "post-order" string maps to a command object that creates
-         * a @a PostOrderIterator implementation.
+         * a @a PostOrderNodeIterator implementation.
          */
         traversalMap.put("post-order", 
-                         tree -> new PostOrderIterator(tree));
+                         tree -> new PostOrderNodeIterator(tree));
             
     	/** 
          * A "level-order" string maps to a command object that
-         * creates a @a LevelOrderIterator implementation.
+         * creates a @a LevelOrderNodeIterator implementation.
          */
         traversalMap.put("level-order", 
-                         tree -> new LevelOrderIterator(tree));
+                         tree -> new LevelOrderNodeIterator(tree));
     }
 	
     /** 
      * Create a new @a Iterator implementation based on the caller's
-     * designated @a traversalOrderRequest.
+     * designated @a traversalOrderRequest.  The iterators are
+     * @a NodeIterator objects, whose next() returns the same cursor
+     * @a ExpressionTree every time, moved to the next node, so it's
+     * only valid until the following call to next().
      */
     public Iterator<ExpressionTree> makeIterator(ExpressionTree tree,
                                                  String traversalOrderRequest) {
@@ -0,0 +1,56 @@
+package com.example.expressiontree.server;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * @class LevelOrderNodeIterator
+ *
+ * @brief Iterates through the @a ComponentNode objects of a tree in
+ *        level-order without allocating a wrapper per node.  It
+ *        visits the right child of each node before its left child.
+ *        The pending nodes form a queue that starts at @a front.
+ *        Plays the role of the "ConcreteStrategy" in the Strategy
+ *        pattern that defines the level-order iteration algorithm.
+ */
+public class LevelOrderNodeIterator extends NodeIterator {
+    /** Index of the front of the queue. */
+    private int front;
+
+    /** Ctor */
+    public LevelOrderNodeIterator(ExpressionTree tree) {
+        push(tree.getRoot());
+    }
+
+    /** Add @a node to the back of the queue. */
+    @Override
+    protected void push(ComponentNode node) {
+        /** Reclaim the space before the front of the queue. */
+        if (count == nodes.length && front > 0) {
+            System.arraycopy(nodes, front, nodes, 0, count - front);
+            Arrays.fill(nodes, count - front, count, null);
+            count -= front;
+            front = 0;
+        }
+        super.push(node);
+    }
+
+    /** Returns false if the queue is empty. */
+    @Override
+    public boolean hasNext() {
+        return front < count;
+    }
+
+    /** Moves iterator to the next node in the queue. */
+    public ExpressionTree next() {
+        if (front == count)
+            throw new NoSuchElementException();
+
+        ComponentNode node = nodes[front];
+        nodes[front++] = null;
+
+        push(node.right());
+        push(node.left());
+        return visit(node);
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.expressiontree.server;
+
+import java.util.Arrays;
+
+/**
+ * @class Lexer
+ *
+ * @brief Scans an input expression string once and stores its tokens
+ *        in a reusable buffer of parallel primitive arrays.  The @a
+ *        Interpreter consumes this buffer when it builds the parse
+ *        tree, so it never has to re-examine the characters of the
+ *        input or allocate a substring per literal.
+ */
+public class Lexer {
+    /** A (possibly multi-digit) integer literal. */
+    final static int NUMBER = 0;
+
+    /** A variable, i.e., a letter followed by zero or more digits. */
+    final static int VARIABLE = 1;
+
+    /** The '+' operator. */
+    final static int ADD = 2;
+
+    /** The '-' operator (subtract or negate). */
+    final static int SUBTRACT = 3;
+
+    /** The '*' operator. */
+    final static int MULTIPLY = 4;
+
+    /** The '/' operator. */
+    final static int DIVIDE = 5;
+
+    /** A '(' character. */
+    final static int LEFT_PAREN = 6;
+
+    /** A ')' character. */
+    final static int RIGHT_PAREN = 7;
+
+    /** Initial capacity of the token buffer. */
+    private final static int INITIAL_CAPACITY = 64;
+
+    /** The kind of each token. */
+    private int[] kinds = new int[INITIAL_CAPACITY];
+
+    /** The value of each @a NUMBER token. */
+    private int[] values = new int[INITIAL_CAPACITY];
+
+    /** The index in the input where each token starts. */
+    private int[] starts = new int[INITIAL_CAPACITY];
+
+    /** The index in the input just past the end of each token. */
+    private int[] ends = new int[INITIAL_CAPACITY];
+
+    /** The number of tokens in the buffer. */
+    private int size;
+
+    /** The input expression that was most recently scanned. */
+    private String input;
+
+    /**
+     * Scan @a inputExpression into the token buffer, replacing
+     * whatever was scanned previously.  Characters that aren't part
+     * of the expression language (e.g., whitespace) are skipped.
+     */
+    public void scan(String inputExpression) {
+        input = inputExpression;
+        size = 0;
+
+        final int length = inputExpression.length();
+
+        for (int index = 0; index < length; ) {
+            char c = inputExpression.charAt(index);
+
+            if (Character.isLetterOrDigit(c)) {
+                boolean isVariable = !Character.isDigit(c);
+                int start = index;
+                int value = isVariable ? 0 : Character.digit(c, 10);
+
+                /**
+                 * Merge all consecutive digit chars into a single
+                 * token, accumulating the value of a number as we go.
+                 */
+                for (++index;
+                     index < length
+                         && Character.isDigit(c = inputExpression.charAt(index));
+                     ++index)
+                    if (!isVariable) {
+                        long accumulated = value * 10L + Character.digit(c, 10);
+                        if (accumulated > Integer.MAX_VALUE)
+                            /**
+                             * Let parseInt() report the overflow the
+                             * same way the interpreter always has.
+                             */
+                            Integer.parseInt(inputExpression.substring(start,
+                                                                       endOfRun(start)));
+                        value = (int) accumulated;
+                    }
+
+                add(isVariable ? VARIABLE : NUMBER, value, start, index);
+                continue;
+            }
+
+            switch (c) {
+            case '+': add(ADD, 0, index, index + 1); break;
+            case '-': add(SUBTRACT, 0, index, index + 1); break;
+            case '*': add(MULTIPLY, 0, index, index + 1); break;
+            case '/': add(DIVIDE, 0, index, index + 1); break;
+            case '(': add(LEFT_PAREN, 0, index, index + 1); break;
+            case ')': add(RIGHT_PAREN, 0, index, index + 1); break;
+            default: /** Skip whitespace and unknown characters. */ break;
+            }
+
+            ++index;
+        }
+    }
+
+    /** Returns the number of tokens in the buffer. */
+    public int size() {
+        return size;
+    }
+
+    /** Returns the kind of the token at @a index. */
+    public int kind(int index) {
+        return kinds[index];
+    }
+
+    /** Returns the value of the @a NUMBER token at @a index. */
+    public int value(int index) {
+        return values[index];
+    }
+
+    /** Returns the text of the token at @a index. */
+    public String text(int index) {
+        return input.substring(starts[index], ends[index]);
+    }
+
+    /**
+     * Returns the index just past the run of digits that follows the
+     * first character at @a start.
+     */
+    private int endOfRun(int start) {
+        int end = start + 1;
+        while (end < input.length() && Character.isDigit(input.charAt(end)))
+            ++end;
+        return end;
+    }
+
+    /** Append a token to the buffer, growing it if necessary. */
+    private void add(int kind, int value, int start, int end) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            values = Arrays.copyOf(values, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+        }
+
+        kinds[size] = kind;
+        values[size] = value;
+        starts[size] = start;
+        ends[size] = end;
+        ++size;
+    }
+}
@@ -27,13 +27,14 @@ public class MacroCommand extends UserCommand {
     }
 
     /** Quit the event loop. */
-    public void execute() throws Exception {
+    public void execute(Platform platform) throws Exception {
         for (UserCommand c : macroCommands)
-            c.execute();
+            c.execute(platform);
     }
 
     /** Print the valid commands available to users. */
-    public void printValidCommands(boolean verboseField) {
+    public void printValidCommands(boolean verboseField,
+                                   Platform platform) {
         /** No menu to print in succinct mode. */
     }
 }
@@ -0,0 +1,63 @@
+package com.example.expressiontree.server;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * @class NodeIterator
+ *
+ * @brief Base class for iterators that walk the @a ComponentNode
+ *        objects of an @a ExpressionTree directly, keeping the
+ *        pending nodes in a preallocated array rather than wrapping
+ *        each of them in a new @a ExpressionTree.  Every call to
+ *        next() returns the same cursor @a ExpressionTree, which is
+ *        moved to the next node, so a traversal allocates nothing
+ *        once the array is big enough.  The cursor is only valid
+ *        until the following call to next().
+ */
+public abstract class NodeIterator implements Iterator<ExpressionTree> {
+    /** The view returned by next(). */
+    private final ExpressionTree cursor = new ExpressionTree(null);
+
+    /** The pending nodes. */
+    protected ComponentNode[] nodes = new ComponentNode[32];
+
+    /** Number of pending nodes. */
+    protected int count;
+
+    /** Add @a node to the pending nodes if it isn't null. */
+    protected void push(ComponentNode node) {
+        if (node == null)
+            return;
+        if (count == nodes.length)
+            nodes = Arrays.copyOf(nodes, count * 2);
+        nodes[count++] = node;
+    }
+
+    /** Remove and return the most recently added pending node. */
+    protected ComponentNode pop() {
+        if (count == 0)
+            throw new NoSuchElementException();
+
+        ComponentNode node = nodes[--count];
+        nodes[count] = null;
+        return node;
+    }
+
+    /** Returns the cursor moved to @a node. */
+    protected ExpressionTree visit(ComponentNode node) {
+        cursor.root = node;
+        return cursor;
+    }
+
+    /** Returns false if there are no pending nodes. */
+    public boolean hasNext() {
+        return count > 0;
+    }
+
+    /** Removal isn't supported. */
+    public void remove() {
+        throw new UnsupportedOperationException("remove");
+    }
+}
@@ -17,13 +17,13 @@ public class NullCommand extends UserCommand {
     }
 
     /** Set the desired format. */
-    public void execute() {
+    public void execute(Platform platform) {
         /** No-op.*/
     }
 
     /** Print the valid commands available to users. */
-    public void printValidCommands(boolean verboseField) {
-        Platform platform = Platform.instance();
+    public void printValidCommands(boolean verboseField,
+                                   Platform platform) {
     	platform.disableAll(verboseField);
         platform.outputMenu("",
                             "",
@@ -39,7 +39,7 @@ public class NullCommand extends UserCommand {
                             "[expression]");
         platform.outputMenu("3a.",
                             "eval",
-                            "[post-order]");
+                            "[post-order | compiled]");
         platform.outputMenu("3b.",
                             "print",
                             "[in-order | pre-order | post-order| level-order]");
@@ -0,0 +1,150 @@
+package com.example.expressiontree.server;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * @class ParallelBatchEvaluator
+ *
+ * @brief A @a BatchEvaluator that splits the rows of a large batch
+ *        into chunks and evaluates them in parallel on a @a
+ *        ForkJoinPool.  The compiled @a ExpressionProgram is
+ *        immutable, so it's shared by all the workers, whereas the
+ *        scratch space is confined to each worker thread.  Blocks
+ *        with a row that divides by zero are evaluated afterwards on
+ *        the caller's thread, so the errors are reported in row order
+ *        to the caller's @a Platform.
+ */
+public class ParallelBatchEvaluator extends BatchEvaluator {
+    /** Default number of rows evaluated by each fork/join task. */
+    public final static int DEFAULT_CHUNK_SIZE = 64 * BLOCK_SIZE;
+
+    /** 
+     * The scratch space of each worker thread.  A worker finishes
+     * one chunk before it takes another, so it's never shared.
+     */
+    private final static ThreadLocal<BatchEvaluator> workerEvaluator =
+        ThreadLocal.withInitial(BatchEvaluator::new);
+
+    /** The pool that runs the chunks. */
+    private final ForkJoinPool pool;
+
+    /** 
+     * Number of rows evaluated by each task, rounded up to a whole
+     * number of blocks.
+     */
+    private final int chunkSize;
+
+    /** 
+     * Ctor that evaluates chunks of @a DEFAULT_CHUNK_SIZE rows on the
+     * common pool.
+     */
+    public ParallelBatchEvaluator() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /** 
+     * Ctor that evaluates chunks of (roughly) @a chunkSize rows on
+     * the designated @a pool.
+     */
+    public ParallelBatchEvaluator(ForkJoinPool pool, int chunkSize) {
+        if (chunkSize <= 0)
+            throw new IllegalArgumentException("Chunk size must be positive");
+
+        this.pool = pool;
+        this.chunkSize =
+            (int) Math.min(((long) chunkSize + BLOCK_SIZE - 1) / BLOCK_SIZE * BLOCK_SIZE,
+                           Integer.MAX_VALUE / BLOCK_SIZE * BLOCK_SIZE);
+    }
+
+    /** 
+     * Evaluate @a program once per row like @a
+     * BatchEvaluator.evaluate(), splitting the rows across the pool
+     * if there's more than one chunk of them.
+     */
+    @Override
+    public void evaluate(ExpressionProgram program,
+                         int[] vars,
+                         int[] slots,
+                         int[][] columns,
+                         int[] results,
+                         Platform platform) {
+        if (results.length <= chunkSize) {
+            super.evaluate(program, vars, slots, columns, results, platform);
+            return;
+        }
+
+        boolean[] faulted =
+            new boolean[(results.length + BLOCK_SIZE - 1) / BLOCK_SIZE];
+
+        pool.invoke(new Chunk(program, vars, slots, columns, results,
+                              0, results.length, faulted));
+
+        prepare(program, vars, slots);
+        for (int block = 0; block < faulted.length; ++block)
+            if (faulted[block]) {
+                int start = block * BLOCK_SIZE;
+                evaluateRows(program, slots, columns, start,
+                             Math.min(BLOCK_SIZE, results.length - start),
+                             results,
+                             platform);
+            }
+    }
+
+    /**
+     * @class Chunk
+     *
+     * @brief Evaluates a range of rows, splitting it in half until
+     *        each piece fits in a single chunk.
+     */
+    private class Chunk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ExpressionProgram program;
+        private final int[] vars;
+        private final int[] slots;
+        private final int[][] columns;
+        private final int[] results;
+        private final int from;
+        private final int to;
+        private final boolean[] faulted;
+
+        Chunk(ExpressionProgram program,
+              int[] vars,
+              int[] slots,
+              int[][] columns,
+              int[] results,
+              int from,
+              int to,
+              boolean[] faulted) {
+            this.program = program;
+            this.vars = vars;
+            this.slots = slots;
+            this.columns = columns;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.faulted = faulted;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunkSize)
+                workerEvaluator.get().evaluateBlocks(program, vars, slots,
+                                                     columns, results,
+                                                     from, to, faulted);
+            else {
+                /** Split on a chunk boundary. */
+                int middle = from + (to - from) / 2;
+                middle += chunkSize - (middle - from) % chunkSize;
+                if (middle >= to)
+                    middle = from + chunkSize;
+
+                invokeAll(new Chunk(program, vars, slots, columns, results,
+                                    from, middle, faulted),
+                          new Chunk(program, vars, slots, columns, results,
+                                    middle, to, faulted));
+            }
+        }
+    }
+}
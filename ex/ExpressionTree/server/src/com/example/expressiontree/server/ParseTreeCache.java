@@ -0,0 +1,435 @@
+package com.example.expressiontree.server;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * @class ParseTreeCache
+ *
+ * @brief A server-wide, bounded cache of the trees built from the
+ *        expressions clients submit, so an expression that any
+ *        client has already entered isn't interpreted again.  The
+ *        trees are kept as interned (see @a
+ *        InterningExpressionTreeFactory) immutable templates, keyed
+ *        by the normalized text of the expression.  A template
+ *        without variables is handed to every client as is, whereas
+ *        a template with variables is copied with its variables
+ *        rebound to the client's @a Interpreter.SymbolTable (sharing
+ *        the subtrees that have no variables).  The cache is split
+ *        into lock-striped LRU maps, each of which holds an equal
+ *        share of a budget of (estimated) bytes, so clients that
+ *        submit different expressions rarely contend.
+ */
+public class ParseTreeCache {
+    /** Default budget of the cache. */
+    public final static long DEFAULT_MAX_BYTES = 16L << 20;
+
+    /** Number of independently locked stripes, a power of two. */
+    private final static int STRIPES = 16;
+
+    /** Estimated size of a node of a template. */
+    private final static int NODE_BYTES = 32;
+
+    /** 
+     * Estimated size of the post-order position of a node of a
+     * template that has variables.
+     */
+    private final static int POSITION_BYTES = 12;
+
+    /** Estimated size of an entry, excluding its key's characters. */
+    private final static int ENTRY_BYTES = 128;
+
+    /** The stripes, each guarded by its own monitor. */
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    /** The budget of each stripe. */
+    private final long maxStripeBytes;
+
+    /**
+     * Creates an interpreter that builds templates with the given
+     * factory, which must be the same kind of @a Interpreter the
+     * clients use, since the two kinds treat malformed input
+     * differently.
+     */
+    private final Function<ExpressionTreeFactory, Interpreter> parser;
+
+    /** Number of lookups that found a template. */
+    private final LongAdder hits = new LongAdder();
+
+    /** Number of lookups that had to interpret the expression. */
+    private final LongAdder misses = new LongAdder();
+
+    /** Number of templates evicted to stay within the budget. */
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Ctor that bounds the cache to about @a maxBytes and builds the
+     * templates with the interpreters created by @a parser, e.g.,
+     * "ShuntingYardInterpreter::new".
+     */
+    public ParseTreeCache(long maxBytes,
+                          Function<ExpressionTreeFactory, Interpreter> parser) {
+        if (maxBytes < 0)
+            throw new IllegalArgumentException("maxBytes must not be negative");
+
+        this.maxStripeBytes = maxBytes / STRIPES;
+        this.parser = parser;
+        for (int i = 0; i < STRIPES; ++i)
+            stripes[i] = new Stripe();
+    }
+
+    /**
+     * Returns the tree of @a expression for a client that would
+     * otherwise have built it with @a interpreter, whose factory
+     * creates the tree and whose symbol table holds its variables.
+     * An expression that can't be interpreted throws the same
+     * exception it would throw from @a interpreter.
+     */
+    public ExpressionTree interpret(String expression,
+                                    Interpreter interpreter) {
+        String key = normalize(expression);
+        Stripe stripe = stripes[stripe(key)];
+        Template template;
+
+        synchronized (stripe) {
+            template = stripe.get(key);
+        }
+
+        if (template != null)
+            hits.increment();
+        else {
+            misses.increment();
+
+            /**
+             * Interpret outside the lock with a new interpreter, so
+             * the templates don't keep anybody's symbol table alive.
+             */
+            template = new Template
+                (key,
+                 parser.apply(new InterningExpressionTreeFactory())
+                     .interpret(expression).getRoot());
+            insert(stripe, template);
+        }
+
+        return template.instantiate(interpreter);
+    }
+
+    /** Returns the number of lookups that found a template. */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /** Returns the number of lookups that interpreted the expression. */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /** Returns the number of templates evicted so far. */
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    /** Returns the number of templates in the cache. */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes)
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        return size;
+    }
+
+    /** Returns the estimated number of bytes the cache holds. */
+    public long bytes() {
+        long bytes = 0;
+        for (Stripe stripe : stripes)
+            synchronized (stripe) {
+                bytes += stripe.bytes;
+            }
+        return bytes;
+    }
+
+    /** Discard all the templates. */
+    public void clear() {
+        for (Stripe stripe : stripes)
+            synchronized (stripe) {
+                stripe.clear();
+                stripe.bytes = 0;
+            }
+    }
+
+    /**
+     * Returns @a expression without the characters the @a Lexer
+     * skips, e.g., whitespace.  A single space is kept where skipped
+     * characters separate a digit from the letter or digit before
+     * it, since they end a token there (e.g., "1 2" is two numbers).
+     * Expressions with the same normalized text yield the same tree.
+     */
+    public static String normalize(String expression) {
+        final int length = expression.length();
+        StringBuilder normalized = null;
+        boolean skipped = false;
+
+        for (int index = 0; index < length; ++index) {
+            char c = expression.charAt(index);
+            if (!Character.isLetterOrDigit(c) && "+-*/()".indexOf(c) < 0) {
+                if (normalized == null)
+                    normalized = new StringBuilder(length)
+                        .append(expression, 0, index);
+                skipped = true;
+                continue;
+            }
+
+            if (normalized != null) {
+                int last = normalized.length() - 1;
+                if (skipped
+                    && Character.isDigit(c)
+                    && last >= 0
+                    && Character.isLetterOrDigit(normalized.charAt(last)))
+                    normalized.append(' ');
+                normalized.append(c);
+            }
+            skipped = false;
+        }
+
+        return normalized == null
+            ? expression
+            : normalized.toString();
+    }
+
+    /** Returns the index of the stripe that holds @a key. */
+    private static int stripe(String key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+
+    /**
+     * Add @a template to @a stripe, unless another thread beat us to
+     * it, and evict the least recently used templates until the
+     * stripe fits in its budget.  A template bigger than the whole
+     * budget isn't cached at all.
+     */
+    private void insert(Stripe stripe, Template template) {
+        if (template.bytes > maxStripeBytes)
+            return;
+
+        synchronized (stripe) {
+            if (stripe.putIfAbsent(template.key, template) != null)
+                return;
+            stripe.bytes += template.bytes;
+
+            for (Iterator<Template> eldest = stripe.values().iterator();
+                 stripe.bytes > maxStripeBytes;
+                 ) {
+                stripe.bytes -= eldest.next().bytes;
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * @class Stripe
+     *
+     * @brief A map of templates in least recently used order, along
+     *        with their total size.
+     */
+    @SuppressWarnings("serial")
+    private static class Stripe extends LinkedHashMap<String, Template> {
+        /** Estimated size of the templates in the stripe. */
+        long bytes;
+
+        /** Ctor */
+        Stripe() {
+            super(16, 0.75f, true);
+        }
+    }
+    /**
+     * @class Template
+     *
+     * @brief The immutable tree of an expression, whose variables
+     *        belong to no client, and its estimated size.  The
+     *        distinct nodes of the tree are also kept in post-order,
+     *        along with the positions of their children in that
+     *        order, so they can be copied without any hashing.
+     */
+    private static class Template {
+        /** Marks a missing child in @a lefts and @a rights. */
+        private final static int NO_CHILD = -1;
+
+        /** The normalized expression. */
+        final String key;
+
+        /** The root of the tree, or null for an empty expression. */
+        final ComponentNode root;
+
+        /** 
+         * The distinct nodes of the tree in post-order, or null if
+         * the tree has no @a VariableNode and is never copied.
+         */
+        final ComponentNode[] nodes;
+
+        /** The position in @a nodes of the left child of each node. */
+        final int[] lefts;
+
+        /** The position in @a nodes of the right child of each node. */
+        final int[] rights;
+
+        /** Estimated size of the template and its cache entry. */
+        final long bytes;
+
+        /** Ctor */
+        Template(String key, ComponentNode root) {
+            this.key = key;
+            this.root = root;
+
+            IdentityHashMap<ComponentNode, Integer> positions =
+                new IdentityHashMap<>();
+            ComponentNode[] order = new ComponentNode[16];
+            int[] lefts = new int[16];
+            int[] rights = new int[16];
+            boolean variables = false;
+
+            /**
+             * Each node is pushed once to visit its children and,
+             * after they have been numbered, once more to number the
+             * node itself.
+             */
+            ComponentNode[] stack = new ComponentNode[16];
+            boolean[] expanded = new boolean[16];
+            int top = 0;
+
+            if (root != null)
+                stack[top++] = root;
+
+            while (top > 0) {
+                ComponentNode node = stack[--top];
+
+                if (positions.containsKey(node))
+                    continue;
+
+                if (!expanded[top]) {
+                    if (top + 3 > stack.length) {
+                        stack = Arrays.copyOf(stack, stack.length * 2);
+                        expanded = Arrays.copyOf(expanded, expanded.length * 2);
+                    }
+
+                    expanded[top++] = true;
+                    if (node.right() != null) {
+                        stack[top] = node.right();
+                        expanded[top++] = false;
+                    }
+                    if (node.left() != null) {
+                        stack[top] = node.left();
+                        expanded[top++] = false;
+                    }
+                    continue;
+                }
+
+                int position = positions.size();
+                if (position == order.length) {
+                    order = Arrays.copyOf(order, position * 2);
+                    lefts = Arrays.copyOf(lefts, position * 2);
+                    rights = Arrays.copyOf(rights, position * 2);
+                }
+
+                order[position] = node;
+                lefts[position] = node.left() == null
+                    ? NO_CHILD
+                    : positions.get(node.left());
+                rights[position] = node.right() == null
+                    ? NO_CHILD
+                    : positions.get(node.right());
+                positions.put(node, position);
+                variables |= node instanceof VariableNode;
+            }
+
+            int size = positions.size();
+            if (variables) {
+                this.nodes = Arrays.copyOf(order, size);
+                this.lefts = Arrays.copyOf(lefts, size);
+                this.rights = Arrays.copyOf(rights, size);
+            } else {
+                this.nodes = null;
+                this.lefts = null;
+                this.rights = null;
+            }
+
+            this.bytes = ENTRY_BYTES + 2L * key.length()
+                + (long) (variables
+                          ? NODE_BYTES + POSITION_BYTES
+                          : NODE_BYTES) * size;
+        }
+
+        /**
+         * Returns the tree for a client that interprets expressions
+         * with @a interpreter.
+         */
+        ExpressionTree instantiate(Interpreter interpreter) {
+            ExpressionTreeFactory factory = interpreter.expressionTreeFactory();
+
+            return factory.makeExpressionTree
+                (nodes != null
+                 ? rebind(factory, interpreter.symbolTable())
+                 : root);
+        }
+
+        /**
+         * Returns a copy of the template whose variables are bound to
+         * @a symbolTable, created by @a factory.  The nodes are
+         * created in post-order, so the variables are allocated
+         * their slots in the same order interpreting the expression
+         * would allocate them.  Subtrees without variables aren't
+         * copied.
+         */
+        private ComponentNode rebind(ExpressionTreeFactory factory,
+                                     Interpreter.SymbolTable symbolTable) {
+            ComponentNode[] copies = new ComponentNode[nodes.length];
+
+            for (int i = 0; i < nodes.length; ++i)
+                copies[i] = copy(nodes[i],
+                                 lefts[i] == NO_CHILD ? null : copies[lefts[i]],
+                                 rights[i] == NO_CHILD ? null : copies[rights[i]],
+                                 factory,
+                                 symbolTable);
+
+            return copies[nodes.length - 1];
+        }
+
+        /**
+         * Returns a node like @a node with the (already copied)
+         * children @a left and @a right, or @a node itself if it
+         * has no variables.
+         */
+        private static ComponentNode copy(ComponentNode node,
+                                          ComponentNode left,
+                                          ComponentNode right,
+                                          ExpressionTreeFactory factory,
+                                          Interpreter.SymbolTable symbolTable) {
+            if (node instanceof VariableNode) {
+                String name = ((VariableNode) node).name();
+                return factory.makeVariableNode(name,
+                                                symbolTable.slot(name),
+                                                symbolTable);
+            } else if (left == node.left() && right == node.right())
+                return node;
+            else if (node instanceof CompositeNegateNode)
+                return factory.makeNegateNode(right);
+            else if (node instanceof CompositeAddNode)
+                return factory.makeAddNode(left, right);
+            else if (node instanceof CompositeSubtractNode)
+                return factory.makeSubtractNode(left, right);
+            else if (node instanceof CompositeMultiplyNode)
+                return factory.makeMultiplyNode(left, right);
+            else if (node instanceof CompositeDivideNode)
+                return factory.makeDivideNode(left, right);
+            else
+                throw new IllegalArgumentException
+                    (node.getClass().getSimpleName() + " can't be copied");
+        }
+    }
+}
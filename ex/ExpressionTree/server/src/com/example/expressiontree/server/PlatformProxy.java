@@ -1,6 +1,7 @@
 package com.example.expressiontree.server;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import com.example.expressiontree.model.PlatformCall;
@@ -13,21 +14,18 @@ import com.example.expressiontree.model.ServerResponse;
  *        ServerResponse, which can then be converted into GSON and sent back to
  *        the client.
  * 
- *        This class also uses the Thread-Specific Storage pattern to avoid
- *        collisions when processing requests from multiple threads at once.
+ *        Each request gets its own PlatformProxy, which is passed explicitly
+ *        to the commands, states, and visitors that produce its output, so
+ *        requests processed at once (or a request that moves between
+ *        threads) never see each other's calls.  A PlatformProxy isn't
+ *        thread-safe, since only one thread at a time works on a request.
  */
 public class PlatformProxy extends Platform {
     /**
-     * The list of platform calls made to this class. Each thread has it's own
-     * list.
+     * The list of platform calls made to this class since reap() was last
+     * called, or null if there haven't been any.
      */
-    ThreadLocal<List<PlatformCall>> mCallObjects =
-        new ThreadLocal<List<PlatformCall>>() {
-        @Override
-        protected List<PlatformCall> initialValue() {
-            return new ArrayList<PlatformCall>();
-        }
-    };
+    List<PlatformCall> mCallObjects;
 
     /**
      * Returns the JSON object that was built since reap() was last called or
@@ -43,36 +41,49 @@ public class PlatformProxy extends Platform {
      */
     public ServerResponse reap() {
 
-        // Get the calls made by the current thread.
-        List<PlatformCall> callObjects = mCallObjects.get();
-
         // Construct a response.
         ServerResponse resp = new ServerResponse();
 
         resp.setResult("ok");
-        resp.setPlatformCalls(callObjects);
+        resp.setPlatformCalls(mCallObjects != null
+                              ? mCallObjects
+                              : new ArrayList<>());
 
-        // Restart collecting call objects for this thread.
-        mCallObjects.set(new ArrayList<>());
+        // Restart collecting call objects.  The next list is only
+        // allocated once there's a call to put in it.
+        mCallObjects = null;
 
         return resp;
     }
 
+    /**
+     * Returns the number of calls made since reap() was last called,
+     * which can be passed to discard() later.
+     */
+    int mark() {
+        return mCallObjects != null ? mCallObjects.size() : 0;
+    }
+
+    /**
+     * Drops the calls made since mark() returned @a mark, e.g., the
+     * partial output of a command that failed, and keeps the ones
+     * made before it.
+     */
+    void discard(int mark) {
+        if (mCallObjects != null)
+            mCallObjects.subList(mark, mCallObjects.size()).clear();
+    }
+
     /**
      * Takes a function name and several params and appends it to the
      * JSON object.
      */
     private void appendCallObject(String fname, String... params) {
+        if (mCallObjects == null)
+            mCallObjects = new ArrayList<>();
 
-        // Get the thread-specific storage object
-        List<PlatformCall> callObjects = mCallObjects.get();
-
-        List<String> paramList = new ArrayList<String>();
-
-        for (String p : params)
-            paramList.add(p);
-
-        callObjects.add(new PlatformCall(fname, paramList));
+        // The varargs array is never reused, so the list can wrap it.
+        mCallObjects.add(new PlatformCall(fname, Arrays.asList(params)));
     }
 
     /**
@@ -0,0 +1,60 @@
+package com.example.expressiontree.server;
+
+import java.util.Arrays;
+
+/**
+ * @class PostOrderNodeIterator
+ * 
+ * @brief Iterates through the @a ComponentNode objects of a tree in
+ *        post-order without allocating a wrapper per node.  Plays the
+ *        role of the "ConcreteStrategy" in the Strategy pattern that
+ *        defines the post-order iteration algorithm.
+ */
+public class PostOrderNodeIterator extends NodeIterator {
+    /** 
+     * Whether the children of each pending node have already been
+     * pushed, in which case the node is next when it's on top.
+     */
+    private boolean[] expanded = new boolean[32];
+
+    /** Ctor */
+    public PostOrderNodeIterator(ExpressionTree tree) {
+        push(tree.getRoot());
+        expand();
+    }
+
+    /** Add @a node to the pending nodes with its children unexpanded. */
+    @Override
+    protected void push(ComponentNode node) {
+        if (node == null)
+            return;
+        if (count == expanded.length)
+            expanded = Arrays.copyOf(expanded, count * 2);
+        expanded[count] = false;
+        super.push(node);
+    }
+
+    /** 
+     * Push the children of the top node, then of its leftmost child,
+     * and so on, until the top node has no children left to visit.
+     */
+    private void expand() {
+        while (count > 0 && !expanded[count - 1]) {
+            ComponentNode node = nodes[count - 1];
+            expanded[count - 1] = true;
+
+            /** Right first, so the left subtree is visited first. */
+            push(node.right());
+            push(node.left());
+        }
+    }
+
+    /** Proceeds to the next node. */
+    public ExpressionTree next() {
+        ComponentNode node = pop();
+
+        /** The next pending node may be a right sibling to expand. */
+        expand();
+        return visit(node);
+    }
+}
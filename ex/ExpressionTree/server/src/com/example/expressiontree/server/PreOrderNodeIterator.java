@@ -0,0 +1,29 @@
+package com.example.expressiontree.server;
+
+/**
+ * @class PreOrderNodeIterator
+ * 
+ * @brief Iterates through the @a ComponentNode objects of a tree in
+ *        pre-order without allocating a wrapper per node.  Plays the
+ *        role of the "ConcreteStrategy" in the Strategy pattern that
+ *        defines the pre-order iteration algorithm.
+ */
+public class PreOrderNodeIterator extends NodeIterator {
+    /** Ctor */
+    public PreOrderNodeIterator(ExpressionTree tree) {
+        push(tree.getRoot());
+    }
+
+    /** Proceeds to the next node. */
+    public ExpressionTree next() {
+        ComponentNode node = pop();
+
+        /** 
+         * Right first, then left, so the left child is the next one
+         * popped off.
+         */
+        push(node.right());
+        push(node.left());
+        return visit(node);
+    }
+}
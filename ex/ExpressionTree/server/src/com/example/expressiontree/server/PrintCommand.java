@@ -24,20 +24,20 @@ public class PrintCommand extends UserCommand {
     }
 
     /** Print the expression tree. */
-    public void execute() throws Exception {
-        treeOps.print(format);
+    public void execute(Platform platform) throws Exception {
+        treeOps.print(format, platform);
     }
 
     /** Print the valid commands available to users. */
-    public void printValidCommands(boolean verboseField) {
-        Platform platform = Platform.instance();
+    public void printValidCommands(boolean verboseField,
+                                   Platform platform) {
     	platform.disableAll(verboseField);
         platform.outputMenu("",
                             "",
                             "");
         platform.outputMenu("1a.",
                             "eval",
-                            "[post-order]");
+                            "[post-order | compiled]");
         platform.outputMenu("1b.",
                             "print",
                             "[in-order | pre-order | post-order| level-order]");
@@ -1,45 +1,108 @@
 package com.example.expressiontree.server;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 
 /**
  * @class PrintVisitor
  *
  * @brief This class serves as a visitor that print the contents of
- *        each type of node in an expression tree.  This class plays
- *        the role of the "ConcreteVisitor" in the Visitor pattern.
+ *        each type of node in an expression tree.  Rather than
+ *        sending each node to the @a Platform separately, it renders
+ *        the nodes into a sink and flush() sends all the text at
+ *        once.  This class plays the role of the "ConcreteVisitor" in
+ *        the Visitor pattern.
  */
 public class PrintVisitor implements Visitor {
-    /** Ctor */
-    public PrintVisitor() {    
+    /** The sink the nodes are rendered into. */
+    private Appendable sink;
+
+    /** 
+     * The sink if it's a @a StringBuilder, which can take ints
+     * without converting them to strings first, or null otherwise.
+     */
+    private StringBuilder buffer;
+
+    /** 
+     * The platform flush() sends the contents of @a buffer to, or
+     * null if the visitor renders into some other sink.
+     */
+    private Platform platform;
+
+    /** 
+     * Ctor that renders into a buffer whose contents flush() sends to
+     * the designated @a platform.
+     */
+    public PrintVisitor(Platform platform) {    
+        this(new StringBuilder());
+        this.platform = platform;
+    }
+
+    /** Ctor that renders into the designated @a sink. */
+    public PrintVisitor(Appendable sink) {
+        this.sink = sink;
+        if (sink instanceof StringBuilder)
+            buffer = (StringBuilder) sink;
     }
 
     /** Visits a @a LeafNode and prints it contents. */
     public void visit(LeafNode node) {
-        Platform.instance().addString(node.item() + " ");
+        if (buffer != null)
+            buffer.append(node.item()).append(' ');
+        else
+            append(Integer.toString(node.item())).append(" ");
+    }
+
+    /** Visits a @a VariableNode and prints its name. */
+    public void visit(VariableNode node) {
+        append(node.name()).append(" ");
     }
 
     /** Visit a @a CompositeNegateNode and prints its contents. */
     public void visit(CompositeNegateNode node) {
-        Platform.instance().addString("-");
+        append("-");
     }
 
     /** Visit a @a CompositeAddNode and prints its contents. */
     public void visit(CompositeAddNode node) {
-        Platform.instance().addString("+ ");
+        append("+ ");
     }
 
     /** Visit a @a CompositeSubtractNode and prints its contents. */
     public void visit(CompositeSubtractNode node) {
-        Platform.instance().addString("- ");
+        append("- ");
     }
 
     /** Visit a @a CompositeDivideNode and prints its contents. */
     public void visit(CompositeDivideNode node) {
-        Platform.instance().addString("/ ");
+        append("/ ");
     }
 
     /** Visit a @a CompositeMultiplyNode and print its contents. */
     public void visit(CompositeMultiplyNode node) {
-        Platform.instance().addString("* ");
+        append("* ");
+    }
+
+    /** 
+     * Send the text rendered into the buffer since the last flush to
+     * the @a Platform in a single addString() call, which appends it
+     * to the output just like the per-node calls used to.  Does
+     * nothing if the visitor renders into some other sink.
+     */
+    public void flush() {
+        if (platform != null && buffer.length() > 0) {
+            platform.addString(buffer.toString());
+            buffer.setLength(0);
+        }
+    }
+
+    /** Append @a text to the sink. */
+    private PrintVisitor append(CharSequence text) {
+        try {
+            sink.append(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return this;
     }
 }
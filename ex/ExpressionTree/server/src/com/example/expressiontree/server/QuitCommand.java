@@ -17,12 +17,13 @@ public class QuitCommand extends UserCommand {
     }
 
     /** Quit the input dispatching loop. */
-    public void execute() {
+    public void execute(Platform platform) {
         // @@ Doug, does quitting still make sense in a server-client setting?
     	//InputDispatcher.instance().endInputDispatching();
     }
 
     /** Print the valid commands available to users. */
-    public void printValidCommands(boolean verboseField) {
+    public void printValidCommands(boolean verboseField,
+                                   Platform platform) {
     }
 }
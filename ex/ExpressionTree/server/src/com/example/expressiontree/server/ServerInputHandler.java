@@ -1,24 +1,47 @@
 package com.example.expressiontree.server;
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.net.URLDecoder;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
 
+import javax.servlet.AsyncContext;
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import com.example.expressiontree.model.BinaryProtocol;
 import com.example.expressiontree.model.ServerResponse;
 
 /**
  * @class ServerInputHandler
  *
- * @brief Handles GET requests from the client to the server.
+ * @brief Handles GET requests from the client to the server.  By
+ *        default each command runs on the container's thread that
+ *        received it.  In async mode the request is suspended with
+ *        startAsync() and the command runs on an executor instead.
+ *        Either way the commands of a client go through the mailbox
+ *        of its session, so they run one at a time and in order,
+ *        while the commands of different clients run in parallel.
  */
-@WebServlet("/")
+@WebServlet(value = "/", asyncSupported = true)
 public class ServerInputHandler extends HttpServlet {
     /**
      * Version number.
@@ -31,24 +54,229 @@ public class ServerInputHandler extends HttpServlet {
     static boolean mVerboseField;
 
     /**
-     * A factory for making user commands. Each factory contains it's
-     * own context, where the expression tree state resides. Each
-     * client gets their own.
+     * The sessions of the clients.  Each session holds a factory for
+     * making user commands, which contains it's own context, where
+     * the expression tree state resides.  Each client gets their own.
      */
-    Map<Long, UserCommandFactory> mClientStates;
-	
+    SessionStore mSessions;
+
+    /**
+     * True if client expressions should be parsed by the @a
+     * ShuntingYardInterpreter, which handles arbitrarily deeply
+     * nested input, rather than the default @a Interpreter.
+     */
+    boolean mIterativeParser;
+
+    /**
+     * The representation of expression trees: "flat" stores them as
+     * @a FlatExpressionTree arrays, "interned" shares their identical
+     * subtrees as an @a InternedExpressionTree, and anything else
+     * stores them as plain @a ComponentNode objects.
+     */
+    String mTreeRepresentation;
+
+    /**
+     * Number of times a client evaluates an expression with "eval
+     * compiled" before it's translated into JVM bytecode, or a
+     * negative value to disable the translation.
+     */
+    int mGenerateThreshold = TreeOps.DEFAULT_GENERATE_THRESHOLD;
+
+    /**
+     * The pool that evaluates the chunks of large "evalbatch"
+     * batches in parallel, or null if they're evaluated on the
+     * request thread.
+     */
+    ForkJoinPool mBatchPool;
+
+    /**
+     * Number of rows in each chunk of a parallel "evalbatch".
+     */
+    int mBatchChunkSize = ParallelBatchEvaluator.DEFAULT_CHUNK_SIZE;
+
+    /**
+     * The cache of expression trees shared by all clients, or null
+     * if every client interprets its expressions from scratch.
+     */
+    ParseTreeCache mParseTreeCache;
+
+    /**
+     * Default maximum number of async commands waiting or running at
+     * once.
+     */
+    static final int DEFAULT_ASYNC_QUEUE_CAPACITY = 1024;
+
+    /**
+     * Runs the commands in async mode, or null if they run on the
+     * container's threads.
+     */
+    ExecutorService mExecutor;
+
+    /**
+     * Maximum number of async commands waiting or running at once,
+     * beyond which requests are turned away with a 503.
+     */
+    int mAsyncQueueCapacity = DEFAULT_ASYNC_QUEUE_CAPACITY;
+
+    /**
+     * Number of async commands waiting or running.
+     */
+    AtomicInteger mAsyncPending = new AtomicInteger();
+
+    /**
+     * Number of requests turned away because the queue was full.
+     */
+    LongAdder mAsyncRejected = new LongAdder();
+
+    /**
+     * Size of the buffer of the gzip compressor.
+     */
+    static final int GZIP_BUFFER_SIZE = 8192;
+
     /**
-     * The next client ID we're going to assign
+     * True if the responses are compressed with gzip for the clients
+     * that accept it.
      */
-    long mNextID = 0;
+    boolean mGzip;
+
+    /**
+     * Maximum length of the request frames of the @a BinaryProtocol.
+     */
+    static final int MAX_REQUEST_FRAME_LENGTH = 1 << 20;
+
+    /**
+     * Maximum number of commands in one request.
+     */
+    static final int MAX_BATCH_SIZE = 1024;
+
+    /**
+     * The encodings of the responses.
+     */
+    enum Encoding {
+        /** JSON, as the client has always read it. */
+        JSON,
+
+        /** JSON compressed with gzip. */
+        GZIPPED_JSON,
+
+        /** Frames of the BinaryProtocol. */
+        BINARY
+    }
 
     /** 
      * Virtual constructor. 
      */
     @Override
     public void init() throws ServletException {
-        mClientStates = new HashMap<>();
-        Platform.instance(new PlatformProxy());
+        // The "sessionIdleTimeout" (in milliseconds, or 0 for never)
+        // and "maxSessions" init parameters bound the client sessions.
+        String idleTimeout = getInitParameter("sessionIdleTimeout");
+        String maxSessions = getInitParameter("maxSessions");
+        mSessions = new SessionStore
+            (idleTimeout == null
+             ? SessionStore.DEFAULT_IDLE_TIMEOUT_MILLIS
+             : Long.parseLong(idleTimeout.trim()),
+             maxSessions == null
+             ? SessionStore.DEFAULT_MAX_SESSIONS
+             : Integer.parseInt(maxSessions.trim()));
+
+        // The "parser" init parameter selects the parser mode.
+        mIterativeParser = "iterative".equals(getInitParameter("parser"));
+
+        // The "tree" init parameter selects the tree representation.
+        mTreeRepresentation = String.valueOf(getInitParameter("tree"));
+
+        // The "generateThreshold" init parameter tunes (or disables)
+        // runtime bytecode generation.
+        String threshold = getInitParameter("generateThreshold");
+        if (threshold != null)
+            mGenerateThreshold = Integer.parseInt(threshold.trim());
+
+        // The "batchParallelism" init parameter enables parallel batch
+        // evaluation and "batchChunkSize" tunes it.
+        String parallelism = getInitParameter("batchParallelism");
+        if (parallelism != null)
+            mBatchPool = new ForkJoinPool(Integer.parseInt(parallelism.trim()));
+        String chunkSize = getInitParameter("batchChunkSize");
+        if (chunkSize != null)
+            mBatchChunkSize = Integer.parseInt(chunkSize.trim());
+
+        // The "parseTreeCacheBytes" init parameter sizes (or, if it's
+        // 0, disables) the cache of expression trees.
+        String cacheBytes = getInitParameter("parseTreeCacheBytes");
+        long maxBytes = cacheBytes == null
+            ? ParseTreeCache.DEFAULT_MAX_BYTES
+            : Long.parseLong(cacheBytes.trim());
+        if (maxBytes > 0)
+            mParseTreeCache = mIterativeParser
+                ? new ParseTreeCache(maxBytes, ShuntingYardInterpreter::new)
+                : new ParseTreeCache(maxBytes, Interpreter::new);
+
+        // The "async" init parameter runs the commands on a pool of
+        // "asyncThreads" threads ("pool") or on a virtual thread each
+        // ("virtual"), and "asyncQueueCapacity" bounds how many may
+        // wait or run at once.
+        String async = getInitParameter("async");
+        if (async != null && !async.equals("false")) {
+            String threads = getInitParameter("asyncThreads");
+            mExecutor = makeExecutor(async,
+                                     threads == null
+                                     ? Runtime.getRuntime().availableProcessors()
+                                     : Integer.parseInt(threads.trim()));
+        }
+        String capacity = getInitParameter("asyncQueueCapacity");
+        if (capacity != null)
+            mAsyncQueueCapacity = Integer.parseInt(capacity.trim());
+
+        // The "gzip" init parameter compresses the responses.
+        mGzip = "true".equals(getInitParameter("gzip"));
+    }
+
+    /**
+     * This factory method creates the executor of the async mode:
+     * one that starts a virtual thread per command if @a kind is
+     * "virtual" and the JDK has virtual threads, and otherwise a
+     * fixed pool of @a threads threads.
+     */
+    private ExecutorService makeExecutor(String kind, int threads) {
+        if (kind.equals("virtual"))
+            try {
+                return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+            } catch (ReflectiveOperationException e) {
+                log("Virtual threads aren't available, so using a pool of "
+                    + threads + " threads");
+            }
+        return Executors.newFixedThreadPool(threads);
+    }
+
+    /** 
+     * Virtual destructor.
+     */
+    @Override
+    public void destroy() {
+        if (mExecutor != null) {
+            mExecutor.shutdown();
+            log("Async commands: " + mAsyncRejected.sum() + " rejected");
+        }
+        if (mBatchPool != null)
+            mBatchPool.shutdown();
+        if (mParseTreeCache != null)
+            log("Parse tree cache: " + mParseTreeCache.hits() + " hits, "
+                + mParseTreeCache.misses() + " misses, "
+                + mParseTreeCache.evictions() + " evictions, "
+                + mParseTreeCache.size() + " trees in "
+                + mParseTreeCache.bytes() + " bytes");
+        log("Sessions: " + mSessions.size() + " active in "
+            + mSessions.bytes() + " bytes, "
+            + mSessions.created() + " created, "
+            + mSessions.expirations() + " expired, "
+            + mSessions.evictions() + " evicted, "
+            + mSessions.lookups() + " lookups ("
+            + mSessions.misses() + " misses) averaging "
+            + mSessions.lookupNanos() / Math.max(mSessions.lookups(), 1)
+            + " ns");
     }
 
     /**
@@ -60,72 +288,367 @@ public class ServerInputHandler extends HttpServlet {
     @Override
     protected void doGet(HttpServletRequest request,
                          HttpServletResponse response) throws ServletException, IOException {		
-        // Retrieves input from user.
-        String userInputCommand = request.getParameter("input");
+        // Retrieves input from user, which may be a batch of
+        // commands, one per "input" parameter.
+        String[] userInputCommands = request.getParameterValues("input");
 
-        if (userInputCommand == null) {
-            response.getWriter().println("{result: \"malformed\"}");
-        } else {
-            // URL decode the string.
-            userInputCommand =
-                URLDecoder.decode(userInputCommand, "UTF-8");
+        if (userInputCommands == null
+            || userInputCommands.length == 0
+            || userInputCommands.length > MAX_BATCH_SIZE) {
+            writeResult("malformed", response, Encoding.JSON);
+            return;
+        }
+
+        // URL decode the strings.
+        for (int i = 0; i < userInputCommands.length; ++i)
+            userInputCommands[i] =
+                URLDecoder.decode(userInputCommands[i], "UTF-8");
 				
-            // See if they gave us an ID.
-            String id = request.getParameter("clientID");
-            boolean foundId = false;
-            UserCommandFactory factory;
+        // See if they gave us an ID.
+        String id = request.getParameter("clientID");
+        SessionStore.Session session = null;
 			
-            // If they did--and it's in our map--use that state.
-            if (id != null && mClientStates.containsKey(Long.parseLong(id))) {
-                factory = mClientStates.get(Long.parseLong(id));
-                foundId = true;
+        // If they did--and it's in our store--use that state.
+        if (id != null)
+            session = mSessions.get(Long.parseLong(id));
+
+        // Compress the response if we may and the client can take it.
+        Encoding encoding = Encoding.JSON;
+        if (mGzip) {
+            response.setHeader("Vary", "Accept-Encoding");
+            String encodings = request.getHeader("Accept-Encoding");
+            if (encodings != null && encodings.contains("gzip"))
+                encoding = Encoding.GZIPPED_JSON;
+        }
+
+        processCommands(request, response, userInputCommands, session,
+                        encoding);
+    }
+
+    /**
+     * This method is called back when a POST request arrives.  A body
+     * of the @a BinaryProtocol holds a batch of request frames, each
+     * of whose commands gets a response frame, in order.  All of them
+     * run in the session of the first frame's client ID, since the
+     * client can't know the ID of a new session before it's made.
+     * Any other POST is handled like a GET.
+     */
+    @Override
+    protected void doPost(HttpServletRequest request,
+                          HttpServletResponse response) throws ServletException, IOException {
+        String contentType = request.getContentType();
+        if (contentType == null
+            || !contentType.startsWith(BinaryProtocol.CONTENT_TYPE)) {
+            doGet(request, response);
+            return;
+        }
+
+        long id = BinaryProtocol.NO_CLIENT_ID;
+        List<String> userInputCommands = new ArrayList<>();
+        try {
+            DataInputStream in =
+                new DataInputStream(request.getInputStream());
+
+            for (byte[] frame;
+                 (frame = BinaryProtocol.readFrame(in, MAX_REQUEST_FRAME_LENGTH)) != null; ) {
+                DataInputStream payload =
+                    new DataInputStream(new ByteArrayInputStream(frame));
+
+                long frameID = payload.readLong();
+                if (userInputCommands.isEmpty())
+                    id = frameID;
+
+                String userInputCommand = BinaryProtocol.readString(payload);
+                if (userInputCommand == null
+                    || userInputCommands.size() == MAX_BATCH_SIZE)
+                    throw new IOException("Malformed batch");
+                userInputCommands.add(userInputCommand);
             }
+        } catch (IOException e) {
+            // A frame is cut short or too long, so the batch is malformed.
+            userInputCommands.clear();
+        }
+
+        if (userInputCommands.isEmpty()) {
+            writeResult("malformed", response, Encoding.BINARY);
+            return;
+        }
+
+        // If they gave us an ID--and it's in our store--use that state.
+        SessionStore.Session session = id != BinaryProtocol.NO_CLIENT_ID
+            ? mSessions.get(id)
+            : null;
+
+        processCommands(request, response,
+                        userInputCommands.toArray(new String[userInputCommands.size()]),
+                        session, Encoding.BINARY);
+    }
+
+    /**
+     * Run the @a userInputCommands in the client's @a session, if it
+     * has one, and send the response back in the given @a encoding.
+     */
+    private void processCommands(HttpServletRequest request,
+                                 HttpServletResponse response,
+                                 String[] userInputCommands,
+                                 SessionStore.Session session,
+                                 Encoding encoding) throws IOException {
+        if (mExecutor != null && request.isAsyncSupported())
+            dispatchCommands(request, response, userInputCommands, session,
+                             encoding);
+        else if (session != null)
+            executeInSession(userInputCommands, session, response, encoding);
+        else
+            // Nobody else knows the new client's ID yet.
+            handleCommands(userInputCommands, null, response, encoding);
+    }
+
+    /**
+     * Run the commands on this thread, once the commands the client
+     * sent before them have run, since two requests of the same
+     * client may arrive at once and @a TreeOps isn't thread-safe.
+     */
+    private void executeInSession(String[] userInputCommands,
+                                  SessionStore.Session session,
+                                  HttpServletResponse response,
+                                  Encoding encoding) throws IOException {
+        try {
+            session.mailbox().execute(() -> {
+                    try {
+                        handleCommands(userInputCommands, session, response,
+                                       encoding);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Suspend the request and run its commands on the @a mExecutor,
+     * after the commands queued in the mailbox of the client's
+     * session (if it has one yet), so the container's thread is free
+     * to take other requests.  Responds with a 503 if too many
+     * requests are waiting already.
+     */
+    private void dispatchCommands(HttpServletRequest request,
+                                  HttpServletResponse response,
+                                  String[] userInputCommands,
+                                  SessionStore.Session session,
+                                  Encoding encoding) throws IOException {
+        if (mAsyncPending.incrementAndGet() > mAsyncQueueCapacity) {
+            mAsyncPending.decrementAndGet();
+            reject(response, encoding);
+            return;
+        }
+
+        AsyncContext async = request.startAsync();
+
+        // The queue is bounded, so the request doesn't need a timeout.
+        async.setTimeout(0);
+
+        Runnable task = () -> {
+            try {
+                handleCommands(userInputCommands, session, response, encoding);
+            } catch (IOException e) {
+                log("Couldn't send the response", e);
+            } finally {
+                mAsyncPending.decrementAndGet();
+                async.complete();
+            }
+        };
+
+        try {
+            if (session != null)
+                session.mailbox().submit(task, rejected -> {
+                        // Queued behind a request that was turned away.
+                        mAsyncPending.decrementAndGet();
+                        try {
+                            reject(response, encoding);
+                        } catch (IOException e) {
+                            log("Couldn't send the response", e);
+                        } finally {
+                            async.complete();
+                        }
+                    }, mExecutor);
             else
-                factory = new UserCommandFactory (new TreeOps());
-			
+                // Nobody else knows the new client's ID yet.
+                mExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            mAsyncPending.decrementAndGet();
+            reject(response, encoding);
+            async.complete();
+        }
+    }
+
+    /**
+     * Turn the request away with a 503, since the server is too busy
+     * to take it.
+     */
+    private void reject(HttpServletResponse response,
+                        Encoding encoding) throws IOException {
+        mAsyncRejected.increment();
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader("Retry-After", "1");
+        writeResult("busy", response, encoding);
+    }
+
+    /**
+     * Execute the @a userInputCommands in order in the client's
+     * @a session, or in a new session if it's null, and send the
+     * output back in the @a response.  In the @a BinaryProtocol every
+     * command gets a response of its own, whereas the commands of a
+     * JSON request share one, which holds the output of all of them
+     * and the menu of the last.  A command that throws loses its own
+     * output, and its response (the shared one in JSON) becomes an
+     * exception that carries the message, but the commands after it
+     * still run, and a new session is returned either way.
+     */
+    private void handleCommands(String[] userInputCommands,
+                                SessionStore.Session session,
+                                HttpServletResponse response,
+                                Encoding encoding) throws IOException {
+        UserCommandFactory factory = session != null
+            ? session.factory()
+            : new UserCommandFactory (makeTreeOps());
+
+        // Collects the output of the commands.
+        PlatformProxy platform = new PlatformProxy();
+
+        // The messages of the commands that failed since the last
+        // response, one per line, or null if none did.
+        String failures = null;
+
+        for (int i = 0; i < userInputCommands.length; ++i) {
+            boolean respond = encoding == Encoding.BINARY
+                || i == userInputCommands.length - 1;
+
             // Use the factory to make the command.
             UserCommand command =
-                factory.makeUserCommand(userInputCommand);
+                factory.makeUserCommand(userInputCommands[i]);
 
             // Call a hook method to execute the command.
+            int mark = platform.mark();
             try {
-                executeCommand(command);
+                executeCommand(command, platform);
 
-                command.printValidCommands(true);
+                if (respond)
+                    command.printValidCommands(true, platform);
             } catch (Exception e) {
-                response.getWriter().print("{result: \"exception\", message: \"" 
-                                           + e.getMessage()
-                                           + "\"}");
-                response.flushBuffer();
-                return;
+                // Drop the output of the failed command, but keep that
+                // of the commands before it, and go on with the next
+                // one, since those may have changed the session.
+                platform.discard(mark);
+
+                String message = String.valueOf(e.getMessage());
+                failures = failures == null
+                    ? message
+                    : failures + "\n" + message;
+            }
+
+            if (!respond)
+                continue;
+
+            // Take all the calls that have been made to the request's Platform
+            // and combine them into a single response.
+            ServerResponse resp = platform.reap();
+            if (failures != null) {
+                // An exception only carries the output that was kept.
+                resp.setResult("exception");
+                resp.setMessage(failures);
+                if (resp.getPlatformCalls().isEmpty())
+                    resp.setPlatformCalls(null);
+                failures = null;
             }
-			
-            // Take all the calls that have been made to Platform since the last time we 
-            // called reap and combine them into a single response.
-            ServerResponse resp =
-                ((PlatformProxy) Platform.instance()).reap();
 
             // If the client didn't provide a valid ID, then we have to generate one for them
             // and add it to the response.
-            if (!foundId) {
-                resp.setID(mNextID);
-                mClientStates.put(mNextID, factory);
-                ++mNextID;
+            if (session == null) {
+                session = mSessions.create(factory);
+                resp.setID(session.id());
             }
-			
-            // Convert the Server Response into JSON and
+            mSessions.account(session, factory.treeOps().bytes());
+
+            // Convert the Server Response into JSON (or a frame) and
             // write it out.
-            String out = resp.toJson();
-            response.getWriter().println(resp.toJson());
+            writeResponse(resp, response, encoding);
+        }
+    }
+
+    /**
+     * Send a response that consists of just the @a result.
+     */
+    private void writeResult(String result,
+                             HttpServletResponse response,
+                             Encoding encoding) throws IOException {
+        ServerResponse resp = new ServerResponse();
+        resp.setResult(result);
+        writeResponse(resp, response, encoding);
+    }
+
+    /**
+     * Stream @a resp into the body of the @a response, in the given
+     * @a encoding.
+     */
+    private void writeResponse(ServerResponse resp,
+                               HttpServletResponse response,
+                               Encoding encoding) throws IOException {
+        if (encoding == Encoding.BINARY) {
+            response.setContentType(BinaryProtocol.CONTENT_TYPE);
+
+            DataOutputStream out =
+                new DataOutputStream(response.getOutputStream());
+            resp.writeBinary(out);
+            out.flush();
+        } else if (encoding == Encoding.GZIPPED_JSON) {
+            response.setHeader("Content-Encoding", "gzip");
+
+            // The JSON is all ASCII, since writeJson() escapes the rest.
+            Writer out = new OutputStreamWriter
+                (new GZIPOutputStream(response.getOutputStream(),
+                                      GZIP_BUFFER_SIZE),
+                 StandardCharsets.US_ASCII);
+            resp.writeJson(out);
+            out.write(System.lineSeparator());
+            out.close();
+        } else {
+            PrintWriter out = response.getWriter();
+            resp.writeJson(out);
+            out.println();
         }
 
         response.flushBuffer();
     }
 
     /**
-     * This hook method executes a command.
+     * This factory method creates the state for a new client.
+     */
+    private TreeOps makeTreeOps() {
+        ExpressionTreeFactory treeFactory;
+        switch (mTreeRepresentation) {
+        case "flat": treeFactory = new FlatExpressionTreeFactory(); break;
+        case "interned": treeFactory = new InterningExpressionTreeFactory(); break;
+        default: treeFactory = new ExpressionTreeFactory(); break;
+        }
+        TreeOps treeOps = mIterativeParser
+            ? new TreeOps(new ShuntingYardInterpreter(treeFactory))
+            : new TreeOps(new Interpreter(treeFactory));
+        treeOps.generateThreshold(mGenerateThreshold);
+        if (mBatchPool != null)
+            treeOps.batchEvaluator(new ParallelBatchEvaluator(mBatchPool,
+                                                              mBatchChunkSize));
+        treeOps.parseTreeCache(mParseTreeCache);
+        return treeOps;
+    }
+
+    /**
+     * This hook method executes a command, sending its output to the
+     * @a platform of the request.
      */
-    private void executeCommand(UserCommand command) throws Exception {
-        command.execute();
+    private void executeCommand(UserCommand command,
+                                Platform platform) throws Exception {
+        command.execute(platform);
     }
 }
@@ -0,0 +1,221 @@
+package com.example.expressiontree.server;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * @class SessionMailbox
+ *
+ * @brief The mailbox of a client session, which runs the tasks (i.e.,
+ *        the commands) submitted to it one at a time, in the order
+ *        they were submitted, on the threads of an @a Executor.  Since
+ *        no two tasks of the same mailbox ever run at once, they may
+ *        use the session's @a TreeOps without locking it, whereas the
+ *        tasks of different mailboxes run in parallel.  This plays
+ *        the role of the mailbox of an actor.  Tasks are either
+ *        submitted to run on an @a Executor later, or executed by the
+ *        calling thread, which then waits until its task has run.
+ *
+ *        Whoever runs the task at the head of the mailbox owns it, and
+ *        hands it on once done: to the thread waiting in execute() for
+ *        the next task, or to the @a Executor of the next submitted
+ *        task.
+ */
+public class SessionMailbox {
+    /**
+     * Maximum number of tasks run in one go before the worker thread
+     * is handed back to the @a Executor, so a busy client can't keep
+     * other clients waiting.
+     */
+    private final static int BATCH_SIZE = 16;
+
+    /**
+     * @class Entry
+     *
+     * @brief A task waiting in the mailbox, and who runs it: either
+     *        the thread waiting on @a turn in execute(), or a drain()
+     *        on @a executor, which passes the task to @a onRejected if
+     *        it refuses to run it.
+     */
+    private static class Entry {
+        final Runnable task;
+        final Executor executor;
+        final Consumer<RejectedExecutionException> onRejected;
+        final CountDownLatch turn;
+
+        Entry(Runnable task,
+              Executor executor,
+              Consumer<RejectedExecutionException> onRejected,
+              CountDownLatch turn) {
+            this.task = task;
+            this.executor = executor;
+            this.onRejected = onRejected;
+            this.turn = turn;
+        }
+    }
+
+    /** The tasks waiting to run (guarded by this). */
+    private final ArrayDeque<Entry> tasks = new ArrayDeque<>();
+
+    /**
+     * True while a thread owns the mailbox, i.e., runs its tasks or
+     * is about to (guarded by this).
+     */
+    private boolean scheduled;
+
+    /**
+     * Run @a task on @a executor once all the tasks submitted before
+     * it have run.  Throws @a RejectedExecutionException, without
+     * queueing the task, if @a executor refuses to run the mailbox.
+     * If a task queued behind it can't run either, since its own
+     * executor refuses as well, it's handed to its @a onRejected.
+     */
+    public void submit(Runnable task,
+                       Consumer<RejectedExecutionException> onRejected,
+                       Executor executor) {
+        Entry entry = new Entry(task, executor, onRejected, null);
+
+        synchronized (this) {
+            tasks.add(entry);
+            if (scheduled)
+                return;
+            scheduled = true;
+        }
+
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            // Nobody else removes tasks while we own the mailbox.
+            synchronized (this) {
+                tasks.remove(entry);
+            }
+            handOff();
+            throw e;
+        }
+    }
+
+    /**
+     * Run @a task once all the tasks submitted before it have run,
+     * and return after it has, rethrowing what it threw.  The calling
+     * thread runs @a task itself, and only that task, once the
+     * mailbox is handed to it.
+     */
+    public void execute(Runnable task) {
+        CountDownLatch turn = new CountDownLatch(1);
+        boolean owner;
+
+        synchronized (this) {
+            tasks.add(new Entry(task, null, null, turn));
+            owner = !scheduled;
+            scheduled = true;
+        }
+
+        if (!owner)
+            awaitUninterruptibly(turn);
+
+        // The task is at the head of the mailbox now.
+        synchronized (this) {
+            tasks.poll();
+        }
+
+        try {
+            task.run();
+        } finally {
+            handOff();
+        }
+    }
+
+    /**
+     * Run up to @a BATCH_SIZE of the tasks submitted to an executor,
+     * then hand the mailbox on.  A task that throws doesn't stop the
+     * ones behind it.  If the executor refuses to run the mailbox
+     * again, this thread keeps running it instead.
+     */
+    private void drain() {
+        do {
+            for (int run = 0; run < BATCH_SIZE; ++run) {
+                Runnable task;
+
+                synchronized (this) {
+                    Entry next = tasks.peek();
+                    if (next == null || next.turn != null)
+                        break;
+                    task = tasks.poll().task;
+                }
+
+                try {
+                    task.run();
+                } catch (RuntimeException | Error e) {
+                    Thread thread = Thread.currentThread();
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                }
+            }
+        } while (!handOff(false));
+    }
+
+    /**
+     * Hand the mailbox to whoever runs the task at its head, or
+     * release it if it's empty.  Called by the owner of the mailbox
+     * when it's done with it.  A submitted task whose executor
+     * refuses to run it is handed to its @a onRejected.
+     */
+    private void handOff() {
+        handOff(true);
+    }
+
+    /**
+     * Hand the mailbox on, as handOff() does, except that when
+     * @a rejectTasks is false it returns false, still owning the
+     * mailbox, rather than reject a task.
+     */
+    private boolean handOff(boolean rejectTasks) {
+        for (;;) {
+            Entry next;
+
+            synchronized (this) {
+                next = tasks.peek();
+                if (next == null) {
+                    scheduled = false;
+                    return true;
+                }
+            }
+
+            if (next.turn != null) {
+                next.turn.countDown();
+                return true;
+            }
+
+            try {
+                next.executor.execute(this::drain);
+                return true;
+            } catch (RejectedExecutionException e) {
+                if (!rejectTasks)
+                    return false;
+
+                synchronized (this) {
+                    tasks.poll();
+                }
+                next.onRejected.accept(e);
+            }
+        }
+    }
+
+    /**
+     * Wait until @a latch is open, and keep the interrupt (if any)
+     * for later.
+     */
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (latch.getCount() > 0)
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+}
@@ -0,0 +1,333 @@
+package com.example.expressiontree.server;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @class SessionStore
+ *
+ * @brief A server-wide, bounded store of the state of each client,
+ *        i.e., the @a UserCommandFactory (and thus the @a TreeOps)
+ *        that executes its commands, keyed by the ID the client was
+ *        given with its first response.  The store is safe to use
+ *        from concurrent servlet threads: the sessions live in a @a
+ *        ConcurrentHashMap and IDs come from an @a AtomicLong.  A
+ *        session that isn't used for longer than the idle timeout
+ *        expires, and once there are more than the maximum number of
+ *        sessions the least recently used ones are evicted.  A client
+ *        whose session is gone is given a new one, just like a client
+ *        that never had an ID.  The store also keeps an estimate of
+ *        the bytes each session holds, and counts its lookups,
+ *        expirations, and evictions.
+ */
+public class SessionStore {
+    /** Default number of milliseconds a session may be idle. */
+    public final static long DEFAULT_IDLE_TIMEOUT_MILLIS = 30 * 60 * 1000L;
+
+    /** Default maximum number of sessions. */
+    public final static int DEFAULT_MAX_SESSIONS = 10000;
+
+    /** The sessions, keyed by their IDs. */
+    private final ConcurrentHashMap<Long, Session> sessions =
+        new ConcurrentHashMap<>();
+
+    /** The ID of the next session. */
+    private final AtomicLong nextId = new AtomicLong();
+
+    /**
+     * Number of nanoseconds a session may be idle, or 0 if sessions
+     * never expire.
+     */
+    private final long idleTimeoutNanos;
+
+    /** The maximum number of sessions. */
+    private final int maxSessions;
+
+    /**
+     * Once there are more than @a maxSessions sessions, the least
+     * recently used ones are evicted until only this many are left,
+     * i.e., 15/16 of the maximum, so that every new session doesn't
+     * have to scan the store.
+     */
+    private final int lowWater;
+
+    /** The System.nanoTime() at which to look for idle sessions next. */
+    private final AtomicLong nextSweep;
+
+    /** Serializes evicting the least recently used sessions. */
+    private final Object evictLock = new Object();
+
+    /** The estimated number of bytes all the sessions hold. */
+    private final AtomicLong bytes = new AtomicLong();
+
+    /** Number of sessions created. */
+    private final LongAdder created = new LongAdder();
+
+    /** Number of lookups. */
+    private final LongAdder lookups = new LongAdder();
+
+    /** Number of lookups that didn't find a live session. */
+    private final LongAdder misses = new LongAdder();
+
+    /** Total number of nanoseconds spent in lookups. */
+    private final LongAdder lookupNanos = new LongAdder();
+
+    /** Number of sessions that expired after being idle. */
+    private final LongAdder expirations = new LongAdder();
+
+    /** Number of sessions evicted to stay within the maximum. */
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Ctor that expires sessions that are idle for more than @a
+     * idleTimeoutMillis milliseconds (never, if it's 0) and keeps at
+     * most @a maxSessions sessions.
+     */
+    public SessionStore(long idleTimeoutMillis, int maxSessions) {
+        if (idleTimeoutMillis < 0)
+            throw new IllegalArgumentException("idleTimeoutMillis must not be negative");
+        if (maxSessions <= 0)
+            throw new IllegalArgumentException("maxSessions must be positive");
+
+        this.idleTimeoutNanos = idleTimeoutMillis * 1000000L;
+        this.maxSessions = maxSessions;
+        this.lowWater = maxSessions - maxSessions / 16;
+        this.nextSweep = new AtomicLong(System.nanoTime() + sweepInterval());
+    }
+
+    /**
+     * Returns the live session with the given @a id, marking it as
+     * used, or null if there's no such session (e.g., because it
+     * expired or was evicted).
+     */
+    public Session get(long id) {
+        long start = System.nanoTime();
+
+        Session session = sessions.get(id);
+        if (session != null) {
+            if (expired(session, start)) {
+                if (remove(session))
+                    expirations.increment();
+                session = null;
+            } else
+                session.lastUsed = start;
+        }
+
+        long end = System.nanoTime();
+        lookups.increment();
+        lookupNanos.add(end - start);
+        if (session == null)
+            misses.increment();
+
+        sweepIfDue(end);
+        return session;
+    }
+
+    /**
+     * Returns a new session for @a factory, under a new ID, evicting
+     * the least recently used sessions if there are too many.
+     */
+    public Session create(UserCommandFactory factory) {
+        Session session = new Session(nextId.getAndIncrement(), factory);
+        sessions.put(session.id, session);
+        created.increment();
+
+        if (sessions.size() > maxSessions)
+            evictLeastRecentlyUsed();
+        sweepIfDue(session.lastUsed);
+        return session;
+    }
+
+    /**
+     * Record that @a session now holds about @a sessionBytes bytes,
+     * e.g., after each command it executes.
+     */
+    public void account(Session session, long sessionBytes) {
+        synchronized (session) {
+            if (session.removed)
+                return;
+            bytes.addAndGet(sessionBytes - session.bytes);
+            session.bytes = sessionBytes;
+        }
+    }
+
+    /** Remove all the sessions that have been idle for too long. */
+    public void expireIdle() {
+        long now = System.nanoTime();
+
+        for (Session session : sessions.values())
+            if (expired(session, now) && remove(session))
+                expirations.increment();
+    }
+
+    /** Returns the number of live sessions. */
+    public int size() {
+        return sessions.size();
+    }
+
+    /** Returns the estimated number of bytes the sessions hold. */
+    public long bytes() {
+        return bytes.get();
+    }
+
+    /** Returns the number of sessions created so far. */
+    public long created() {
+        return created.sum();
+    }
+
+    /** Returns the number of lookups so far. */
+    public long lookups() {
+        return lookups.sum();
+    }
+
+    /** Returns the number of lookups that found no live session. */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /** Returns the total number of nanoseconds spent in lookups. */
+    public long lookupNanos() {
+        return lookupNanos.sum();
+    }
+
+    /** Returns the number of sessions that expired so far. */
+    public long expirations() {
+        return expirations.sum();
+    }
+
+    /** Returns the number of sessions evicted so far. */
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    /** Returns true if @a session has been idle for too long at @a now. */
+    private boolean expired(Session session, long now) {
+        return idleTimeoutNanos > 0
+            && now - session.lastUsed > idleTimeoutNanos;
+    }
+
+    /**
+     * Returns the number of nanoseconds between looking for idle
+     * sessions, which is a quarter of the idle timeout, so a session
+     * lingers at most 25% longer than it may be idle.
+     */
+    private long sweepInterval() {
+        return Math.max(idleTimeoutNanos / 4, 1000000L);
+    }
+
+    /**
+     * Look for idle sessions if it's time to, i.e., on one thread
+     * every sweepInterval() nanoseconds.
+     */
+    private void sweepIfDue(long now) {
+        if (idleTimeoutNanos == 0)
+            return;
+
+        long due = nextSweep.get();
+        if (now - due >= 0
+            && nextSweep.compareAndSet(due, now + sweepInterval()))
+            expireIdle();
+    }
+
+    /**
+     * Evict the least recently used sessions until only @a lowWater
+     * are left.  Threads that find another thread already
+     * evicting wait for it rather than evicting again.  Since the
+     * sessions keep being used while they're sorted, they're sorted
+     * by a snapshot of the times they were last used.
+     */
+    private void evictLeastRecentlyUsed() {
+        synchronized (evictLock) {
+            if (sessions.size() <= maxSessions)
+                return;
+            int excess = sessions.size() - lowWater;
+
+            Session[] candidates = sessions.values().toArray(new Session[0]);
+            long[] lastUsed = new long[candidates.length];
+            for (int i = 0; i < candidates.length; ++i)
+                lastUsed[i] = candidates[i].lastUsed;
+
+            /** Only sessions last used no later than this are evicted. */
+            long[] sorted = lastUsed.clone();
+            Arrays.sort(sorted);
+            long cutoff = sorted[Math.min(excess, sorted.length) - 1];
+
+            for (int i = 0; i < candidates.length && excess > 0; ++i)
+                if (lastUsed[i] <= cutoff && remove(candidates[i])) {
+                    evictions.increment();
+                    --excess;
+                }
+        }
+    }
+
+    /**
+     * Remove @a session, returning false if it was already removed
+     * by another thread.
+     */
+    private boolean remove(Session session) {
+        if (!sessions.remove(session.id, session))
+            return false;
+
+        synchronized (session) {
+            session.removed = true;
+            bytes.addAndGet(-session.bytes);
+            session.bytes = 0;
+        }
+        return true;
+    }
+
+    /**
+     * @class Session
+     *
+     * @brief The state of one client, i.e., its ID, the @a
+     *        UserCommandFactory that makes its commands, and the @a
+     *        SessionMailbox that runs them.
+     */
+    public static class Session {
+        /** The ID the client sends with its requests. */
+        private final long id;
+
+        /** Makes the commands of the client. */
+        private final UserCommandFactory factory;
+
+        /** Runs the commands of the client one at a time. */
+        private final SessionMailbox mailbox = new SessionMailbox();
+
+        /** The System.nanoTime() of the last time it was used. */
+        private volatile long lastUsed = System.nanoTime();
+
+        /** The estimated number of bytes it holds (guarded by this). */
+        private long bytes;
+
+        /** True once it's been removed from the store (guarded by this). */
+        private boolean removed;
+
+        /** Ctor */
+        Session(long id, UserCommandFactory factory) {
+            this.id = id;
+            this.factory = factory;
+        }
+
+        /** Returns the ID of the session. */
+        public long id() {
+            return id;
+        }
+
+        /** Returns the factory that makes the client's commands. */
+        public UserCommandFactory factory() {
+            return factory;
+        }
+
+        /** Returns the mailbox that runs the client's commands. */
+        public SessionMailbox mailbox() {
+            return mailbox;
+        }
+
+        /** Returns the estimated number of bytes the session holds. */
+        public synchronized long bytes() {
+            return bytes;
+        }
+    }
+}
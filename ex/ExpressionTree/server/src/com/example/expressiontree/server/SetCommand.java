@@ -23,12 +23,12 @@ public class SetCommand extends UserCommand {
     }
 	
     /** Evaluate the expression tree. */
-    public void execute() throws Exception {
+    public void execute(Platform platform) throws Exception {
         treeOps.set (keyValuePair);
     }
 	
-    public void printValidCommands(boolean verboseField) {
-        Platform platform = Platform.instance();
+    public void printValidCommands(boolean verboseField,
+                                   Platform platform) {
     	platform.disableAll(verboseField);
     	platform.outputLine("");
 
@@ -53,7 +53,7 @@ public class SetCommand extends UserCommand {
                                 "[expression]");
             platform.outputMenu(step+ "a.",
                                 "eval",
-                                "[post-order]");
+                                "[post-order | compiled]");
             platform.outputMenu(step++ + "b.",
                                 "print",
                                 "[in-order | pre-order | post-order| level-order]");
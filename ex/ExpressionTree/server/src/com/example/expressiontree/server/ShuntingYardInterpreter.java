@@ -0,0 +1,225 @@
+package com.example.expressiontree.server;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Stack;
+
+/**
+ * @class ShuntingYardInterpreter
+ *
+ * @brief A variant of the @a Interpreter that builds the parse tree
+ *        with Dijkstra's shunting-yard algorithm and builds the
+ *        expression tree from it without recursion.  Since all the
+ *        bookkeeping lives in explicit operator and operand stacks
+ *        on the heap, it handles arbitrarily deep nesting (e.g.,
+ *        "((((...1...))))") without overflowing the thread stack.
+ *        It overrides hook methods of the Template Method pattern
+ *        used by @a Interpreter.interpret().
+ */
+public class ShuntingYardInterpreter extends Interpreter {
+    /**
+     * Pseudo token kind used on the operator stack for a '-' that
+     * negates its operand.
+     */
+    private final static int NEGATE = -1;
+
+    /** Operator stack holding @a Lexer token kinds. */
+    private int[] operators = new int[16];
+
+    /** Number of entries on the operator stack. */
+    private int operatorCount;
+
+    /** Operand stack holding the parse trees built so far. */
+    private ArrayDeque<Symbol> operands = new ArrayDeque<>();
+
+    /**
+     * Provide a default implementation of the @a
+     * ExpressionTreeFactory.
+     */
+    public ShuntingYardInterpreter() {
+    }
+
+    /**
+     * Provide the means to override the default @a
+     * ExpressionTreeFactory.
+     */
+    public ShuntingYardInterpreter(ExpressionTreeFactory expressionTreeFactory) {
+        super(expressionTreeFactory);
+    }
+
+    /**
+     * Convert @a inputExpression into a parse tree whose root is the
+     * one and only element of the returned stack.
+     */
+    @Override
+    public Stack<Symbol> buildParseTree(String inputExpression) {
+        Lexer lexer = lexer();
+        lexer.scan(inputExpression);
+
+        operatorCount = 0;
+        operands.clear();
+
+        // A '-' is a negation whenever it appears where an operand is
+        // expected, e.g., at the start of the input or right after
+        // another operator.
+        boolean expectOperand = true;
+
+        for (int token = 0; token < lexer.size(); ++token) {
+            int kind = lexer.kind(token);
+
+            switch (kind) {
+            case Lexer.NUMBER:
+            case Lexer.VARIABLE:
+                operands.push(makeOperand(token));
+                expectOperand = false;
+                break;
+            case Lexer.SUBTRACT:
+                if (expectOperand)
+                    // A prefix operator never pops anything off the
+                    // operator stack.
+                    pushOperator(NEGATE);
+                else {
+                    pushBinaryOperator(kind);
+                    expectOperand = true;
+                }
+                break;
+            case Lexer.ADD:
+            case Lexer.MULTIPLY:
+            case Lexer.DIVIDE:
+                pushBinaryOperator(kind);
+                expectOperand = true;
+                break;
+            case Lexer.LEFT_PAREN:
+                pushOperator(kind);
+                break;
+            case Lexer.RIGHT_PAREN:
+                // Apply everything back to the matching '('.  An
+                // unmatched ')' is ignored.
+                while (operatorCount > 0
+                       && operators[operatorCount - 1] != Lexer.LEFT_PAREN)
+                    applyOperator(operators[--operatorCount]);
+                if (operatorCount > 0)
+                    --operatorCount;
+                break;
+            }
+        }
+
+        // Any '(' that's still open is closed by the end of input.
+        while (operatorCount > 0) {
+            int kind = operators[--operatorCount];
+            if (kind != Lexer.LEFT_PAREN)
+                applyOperator(kind);
+        }
+
+        Stack<Symbol> parseTree = new Stack<Symbol>();
+        if (!operands.isEmpty())
+            parseTree.push(operands.peek());
+        operands.clear();
+
+        return parseTree;
+    }
+
+    /**
+     * Build the @a ExpressionTree bottom-up from the root symbol of
+     * the @a parseTree using an explicit stack rather than the
+     * recursive @a Symbol.build() method.
+     */
+    @Override
+    protected ExpressionTree buildExpressionTree(Stack<Symbol> parseTree) {
+        // there had better only be one element left in the stack!
+        assert (parseTree.size() == 1);
+
+        ArrayDeque<Symbol> pending = new ArrayDeque<>();
+        ArrayDeque<Symbol> postOrder = new ArrayDeque<>();
+
+        // Push the symbols in reverse post-order so they pop off in
+        // post-order, i.e., children before their parents.
+        pending.push(parseTree.peek());
+        while (!pending.isEmpty()) {
+            Symbol symbol = pending.pop();
+            postOrder.push(symbol);
+
+            if (symbol instanceof Operator)
+                pending.push(symbol.left);
+            if (!(symbol instanceof Operand))
+                pending.push(symbol.right);
+        }
+
+        ArrayDeque<ComponentNode> built = new ArrayDeque<>();
+        while (!postOrder.isEmpty()) {
+            Symbol symbol = postOrder.pop();
+            ComponentNode right = null;
+            ComponentNode left = null;
+
+            if (!(symbol instanceof Operand))
+                right = built.pop();
+            if (symbol instanceof Operator)
+                left = built.pop();
+
+            built.push(symbol.build(left, right));
+        }
+
+        return expressionTreeFactory().makeExpressionTree(built.pop());
+    }
+
+    /** Returns the precedence of an operator on the operator stack. */
+    private static int precedence(int kind) {
+        switch (kind) {
+        case Lexer.ADD:
+        case Lexer.SUBTRACT:
+            return addSubPrecedence;
+        case Lexer.MULTIPLY:
+        case Lexer.DIVIDE:
+            return mulDivPrecedence;
+        default:
+            return negatePrecedence;
+        }
+    }
+
+    /** Push @a kind onto the operator stack, growing it if necessary. */
+    private void pushOperator(int kind) {
+        if (operatorCount == operators.length)
+            operators = Arrays.copyOf(operators, operatorCount * 2);
+        operators[operatorCount++] = kind;
+    }
+
+    /**
+     * Push the binary operator @a kind onto the operator stack.  All
+     * binary operators are left-associative, so everything of greater
+     * or equal precedence on the stack is applied first.
+     */
+    private void pushBinaryOperator(int kind) {
+        while (operatorCount > 0
+               && operators[operatorCount - 1] != Lexer.LEFT_PAREN
+               && precedence(operators[operatorCount - 1]) >= precedence(kind))
+            applyOperator(operators[--operatorCount]);
+
+        pushOperator(kind);
+    }
+
+    /**
+     * Pop the operands of the operator @a kind, combine them into a
+     * new parse tree, and push it back onto the operand stack.
+     */
+    private void applyOperator(int kind) {
+        Symbol op;
+
+        switch (kind) {
+        case NEGATE: op = new Negate(); break;
+        case Lexer.ADD: op = new Add(); break;
+        case Lexer.SUBTRACT: op = new Subtract(); break;
+        case Lexer.MULTIPLY: op = new Multiply(); break;
+        default: op = new Divide(); break;
+        }
+
+        op.right = operands.poll();
+        if (kind != NEGATE)
+            op.left = operands.poll();
+
+        if (op.right == null || (kind != NEGATE && op.left == null))
+            throw new IllegalArgumentException
+                ("Malformed expression: operator is missing an operand");
+
+        operands.push(op);
+    }
+}
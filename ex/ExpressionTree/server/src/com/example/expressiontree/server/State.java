@@ -38,7 +38,8 @@ public class State {
      * Throws an exception if called in the wrong state.
      */
     void print(TreeOps context,
-               String format) {
+               String format,
+               Platform platform) {
         throw new IllegalStateException("State.print() called in invalid state");
     }
 	  
@@ -46,16 +47,28 @@ public class State {
      * Throws an exception if called in the wrong state.
      */
     void evaluate(TreeOps context,
-                  String format) {
+                  String format,
+                  Platform platform) {
         throw new IllegalStateException("State.evaluate() called in invalid state");
     }
     
+    /** 
+     * Throws an exception if called in the wrong state.
+     */
+    int[] evaluateBatch(TreeOps context,
+                        String[] names,
+                        int[][] columns,
+                        Platform platform) {
+        throw new IllegalStateException("State.evaluateBatch() called in invalid state");
+    }
+    
     /** 
      * Print the operators and operands of the @a tree using the
-     * designated @a traversalOrder.
+     * designated @a traversalOrder on the @a platform.
      */
     static void printTree(ExpressionTree tree,
-                          String traversalOrder) {		  
+                          String traversalOrder,
+                          Platform platform) {		  
         if (traversalOrder.equals(""))
             /** 
              * Default to in-order if user doesn't explicitly request
@@ -70,7 +83,7 @@ public class State {
          */
 
         /** Create the PrintVisitor using a factory. */
-        Visitor printVisitor = visitorFactory.makeVisitor("print"); 
+        Visitor printVisitor = visitorFactory.makeVisitor("print", platform);
         
         /** 
          * Iterate through all nodes in the expression tree and accept
@@ -80,14 +93,29 @@ public class State {
             it.hasNext();
             )
             it.next().accept(printVisitor);
+
+        /** Send the whole traversal to the platform at once. */
+        ((PrintVisitor) printVisitor).flush();
     }
 	  	
     /** 
      * Evaluate and print the yield of the @a tree using the
-     * designated @a traversalOrder.
+     * designated @a traversalOrder on the @a platform, and return it.
      */
-    static void evaluateTree(ExpressionTree tree,
-                             String traversalOrder) {
+    static int evaluateTree(ExpressionTree tree,
+                            String traversalOrder,
+                            Platform platform) {
+        return evaluateWithVisitor(tree, traversalOrder, platform).total();
+    }
+
+    /** 
+     * Evaluate and print the yield of the @a tree like evaluateTree()
+     * does, and return the @a EvaluationVisitor, which also knows the
+     * variables it read and whether it divided by zero.
+     */
+    static EvaluationVisitor evaluateWithVisitor(ExpressionTree tree,
+                                                 String traversalOrder,
+                                                 Platform platform) {
         if (traversalOrder.equals(""))
             /** 
              * Default to post-order if user doesn't explicitly
@@ -105,7 +133,7 @@ public class State {
          */
 
         /** Create the EvaluationVisitor using a factory. */
-        Visitor evalVisitor = visitorFactory.makeVisitor("eval");
+        Visitor evalVisitor = visitorFactory.makeVisitor("eval", platform);
   
         /** 
          * Iterate through all nodes in the expression tree and accept
@@ -119,7 +147,58 @@ public class State {
         Integer total = ((EvaluationVisitor) evalVisitor).total();
 
         // Use the platform strategy to printout the result.
-        Platform.instance().outputLine(total.toString());
+        platform.outputLine(total.toString());
+        return (EvaluationVisitor) evalVisitor;
+    }
+
+    /** 
+     * Compile the @a tree into a flat postfix @a ExpressionProgram
+     * by visiting its nodes in post-order.  The shared subtrees of
+     * an @a InternedExpressionTree are only compiled once.
+     */
+    static ExpressionProgram compileTree(ExpressionTree tree) {
+        if (!(tree instanceof InternedExpressionTree))
+            return compileUnshared(tree);
+
+        CompileVisitor compileVisitor =
+            (CompileVisitor) visitorFactory.makeVisitor("compile");
+        ExpressionProgram program =
+            compileVisitor.compileShared(tree.getRoot());
+        program.unshared(() -> compileUnshared(tree));
+        return program;
+    }
+
+    /** 
+     * Compile the @a tree by visiting every node in post-order,
+     * including each occurrence of a shared subtree.
+     */
+    private static ExpressionProgram compileUnshared(ExpressionTree tree) {
+        /** Create the CompileVisitor using a factory. */
+        Visitor compileVisitor = visitorFactory.makeVisitor("compile");
+
+        /** 
+         * Iterate through all nodes in the expression tree and accept
+         * the compileVisitor to emit the code for each type of node.
+         */
+        for(Iterator<ExpressionTree> it = tree.makeIterator("post-order");
+            it.hasNext();
+            )
+            it.next().accept(compileVisitor);
+
+        return ((CompileVisitor) compileVisitor).program();
+    }
+
+    /** 
+     * Evaluate and print the yield of the expression tree in the @a
+     * context by running its compiled @a ExpressionProgram on the
+     * @a platform, and return it.
+     */
+    static int evaluateProgram(TreeOps context, Platform platform) {
+        Integer total = context.executeProgram(platform);
+
+        // Use the platform strategy to printout the result.
+        platform.outputLine(total.toString());
+        return total;
     }
 
     /** 
@@ -227,7 +306,7 @@ public class State {
                  * Use the Interpreter and Builder patterns to create
                  * the expression tree designated by user input.
                  */
-                treeOps.tree(treeOps.interpreter().interpret(inputExpression));
+                treeOps.tree(treeOps.interpret(inputExpression));
 
                 /** Transition to the InOrderInitializedState. */
                 treeOps.state(new InOrderInitializedState());
@@ -246,16 +325,72 @@ public class State {
              * Print the current expression tree in the @a context
              * using the designed @a format.
              */
-            void print(TreeOps context, String format) {
-                State.printTree(context.tree(), format);
+            void print(TreeOps context,
+                       String format,
+                       Platform platform) {
+                State.printTree(context.tree(), format, platform);
             }
 
             /** 
              * Evaluate the yield of the current expression tree in the @a
              * context using the designed @a format.
              */
-            void evaluate(TreeOps context, String format) {
-                State.evaluateTree(context.tree(), format);
+            void evaluate(TreeOps context,
+                          String format,
+                          Platform platform) {
+                /** 
+                 * Formats that aren't supported skip the memo so
+                 * they're still rejected by evaluateTree().
+                 */
+                if (!format.equals("compiled")
+                    && !format.equals("")
+                    && !format.equals("post-order")) {
+                    State.evaluateTree(context.tree(), format, platform);
+                    return;
+                }
+
+                /** 
+                 * Repeated evaluations of the same tree and
+                 * variable values just print the memoized total.
+                 */
+                Integer total = context.memoizedTotal();
+                if (total != null) {
+                    // Use the platform strategy to printout the result.
+                    platform.outputLine(total.toString());
+                    return;
+                }
+
+                /** 
+                 * Memoize the total unless the evaluation divided by
+                 * zero, which it tells us itself, so it needn't run
+                 * again.
+                 */
+                if (format.equals("compiled")) {
+                    int compiled = State.evaluateProgram(context, platform);
+                    context.memoize(compiled,
+                                    context.program().slots(),
+                                    context.programFaulted());
+                } else {
+                    EvaluationVisitor visitor =
+                        State.evaluateWithVisitor(context.tree(),
+                                                  format,
+                                                  platform);
+                    context.memoize(visitor.total(),
+                                    visitor.slots(),
+                                    visitor.dividedByZero());
+                }
+            }
+
+            /** 
+             * Evaluate the yield of the current expression tree in the @a
+             * context once per row of the variable bindings in @a
+             * columns.
+             */
+            int[] evaluateBatch(TreeOps context,
+                                String[] names,
+                                int[][] columns,
+                                Platform platform) {
+                return context.executeBatch(names, columns, platform);
             }
         }
 
@@ -288,15 +423,19 @@ public class State {
              * Print the current expression tree in the @a context
              * using the designed @a format.
              */
-            void print(TreeOps context, String format) {
-                State.printTree(context.tree(), format);
+            void print(TreeOps context,
+                       String format,
+                       Platform platform) {
+                State.printTree(context.tree(), format, platform);
             }
 			  	
             /** 
              * Evaluate the yield of the current expression tree
              * in the @a context using the designed @a format.
              */
-            void evaluate(TreeOps context, String format) {
+            void evaluate(TreeOps context,
+                          String format,
+                          Platform platform) {
                 throw new IllegalArgumentException("LevelOrderInitializedState.evaluate() not yet implemented");
             }
         }
@@ -332,15 +471,19 @@ public class State {
              * Print the current expression tree in the @a context
              * using the designed @a format.
              */
-            void print(TreeOps context, String format) {
-                State.printTree(context.tree(), format);
+            void print(TreeOps context,
+                       String format,
+                       Platform platform) {
+                State.printTree(context.tree(), format, platform);
             }
 
             /** 
              * Evaluate the yield of the current expression tree
              * in the @a context using the designed @a format.
              */
-            void evaluate(TreeOps context, String param) {
+            void evaluate(TreeOps context,
+                          String param,
+                          Platform platform) {
                 throw new IllegalArgumentException("PostOrderInitializedState.evaluate() not yet implemented");
             }
         }
@@ -376,15 +519,19 @@ public class State {
              * Print the current expression tree in the @a context
              * using the designed @a format.
              */
-            void print(TreeOps context, String format) {
-                State.printTree(context.tree(), format);
+            void print(TreeOps context,
+                       String format,
+                       Platform platform) {
+                State.printTree(context.tree(), format, platform);
             }
 		  	
             /** 
              * Evaluate the yield of the current expression tree in
              * the @a context using the designed @a format.
              */
-            void evaluate(TreeOps context, String format) {
+            void evaluate(TreeOps context,
+                          String format,
+                          Platform platform) {
                 throw new IllegalArgumentException("PreOrderInitializedState.evaluate() not yet implemented");
             }
         }
@@ -28,6 +28,91 @@ public class TreeOps {
      */
     private boolean formatted;
 
+    /** 
+     * The @a tree compiled into an @a ExpressionProgram, or null if
+     * it hasn't been compiled since the last call to makeTree().
+     */
+    private ExpressionProgram program;
+
+    /** Scratch operand stack reused by each run of the @a program. */
+    private int[] programStack = new int[0];
+
+    /** 
+     * Default number of times the @a program runs before it's
+     * translated into JVM bytecode.
+     */
+    public final static int DEFAULT_GENERATE_THRESHOLD = 1000;
+
+    /** 
+     * Number of times the @a program runs before it's translated
+     * into JVM bytecode, or a negative value to never do so.
+     */
+    private int generateThreshold = DEFAULT_GENERATE_THRESHOLD;
+
+    /** Number of times the @a program has run since it was compiled. */
+    private int programRuns;
+
+    /** 
+     * The @a program translated into a JVM class, or null if it
+     * hasn't been (or can't be) generated.
+     */
+    private IntExpression generated;
+
+    /** True if evaluated totals are memoized. */
+    private boolean memoizeTotals = true;
+
+    /** 
+     * True if @a memoTotal holds the total of the current tree for
+     * the @a memoValues of the variables it reads.
+     */
+    private boolean memoValid;
+
+    /** The memoized total of the current tree. */
+    private int memoTotal;
+
+    /** The slots of the variables the @a memoTotal depends on. */
+    private int[] memoSlots = new int[0];
+
+    /** 
+     * The values the variables in @a memoSlots had when @a memoTotal
+     * was computed.
+     */
+    private int[] memoValues = new int[0];
+
+    /** True if the last run of the @a program divided by zero. */
+    private boolean programFaulted;
+
+    /** Evaluates the @a program over batches of variable bindings. */
+    private BatchEvaluator batchEvaluator;
+
+    /** 
+     * Shares the trees of expressions across clients, or null to
+     * always interpret expressions from scratch.
+     */
+    private ParseTreeCache parseTreeCache;
+
+    /** Estimated size of a @a TreeOps and its interpreter. */
+    private final static int BASE_BYTES = 1024;
+
+    /** 
+     * Estimated size of the tree per character of its expression,
+     * i.e., of one node.
+     */
+    private final static int CHARACTER_BYTES = 32;
+
+    /** Estimated size of a variable in the symbol table. */
+    private final static int VARIABLE_BYTES = 64;
+
+    /** Estimated size of an instruction of the @a program. */
+    private final static int INSTRUCTION_BYTES = 8;
+
+    /** Length of the expression last passed to interpret(). */
+    private int expressionLength;
+
+    /** Generates the classes that back @a generated. */
+    private static ExpressionClassGenerator classGenerator =
+        new ExpressionClassGenerator();
+
     /** 
      * The interpreter used to parse and process user expression
      * input.
@@ -41,9 +126,17 @@ public class TreeOps {
 
     /** Ctor */
     public TreeOps() {
+        this(new Interpreter());
+    }
+
+    /** 
+     * Ctor that uses the designated @a interpreter to parse and
+     * process user expression input.
+     */
+    public TreeOps(Interpreter interpreter) {
         state = new UninitializedState();
         formatted = false;
-        interpreter = new Interpreter();
+        this.interpreter = interpreter;
         tree = new ExpressionTree(null);
     }
 
@@ -63,18 +156,85 @@ public class TreeOps {
 
     /**
      * Print the most recently created expression tree using the
-     * designated @a format.
+     * designated @a format on the @a platform.
      */
-    public void print(String format) {
-        state.print(this, format);
+    public void print(String format, Platform platform) {
+        state.print(this, format, platform);
     }
 
     /**
      * Evaluate the "yield" of the most recently created expression
-     * tree using the designated @a format.
+     * tree using the designated @a format and print it on the @a
+     * platform.
      */
-    public void evaluate(String format) {
-        state.evaluate(this, format);
+    public void evaluate(String format, Platform platform) {
+        state.evaluate(this, format, platform);
+    }
+
+    /** 
+     * Evaluate the most recently created expression tree once per
+     * row of the variable bindings in @a columns and return the
+     * totals.  The variable named @a names[c] takes its value for row
+     * @a i from @a columns[c][i], and all other variables keep their
+     * current values.  Errors are reported to the @a platform.
+     */
+    public int[] evaluateBatch(String[] names,
+                               int[][] columns,
+                               Platform platform) {
+        if (names.length != columns.length)
+            throw new IllegalArgumentException
+                ("Must have one column per variable");
+        if (columns.length == 0)
+            throw new IllegalArgumentException
+                ("Must bind at least one variable");
+        for (int[] column : columns)
+            if (column.length != columns[0].length)
+                throw new IllegalArgumentException
+                    ("All columns must have the same length");
+
+        return state.evaluateBatch(this, names, columns, platform);
+    }
+
+    /** 
+     * Evaluate the most recently created expression tree once per
+     * row of the @a bindings, which are in the form
+     * "key=value,value,...; key=value,value,...", and print the
+     * comma-separated totals on the @a platform.
+     */
+    public void evaluateBatch(String bindings,
+                              Platform platform) throws Exception {
+        /** Get rid of all spaces. */
+        String[] pairs = bindings.replaceAll(" ", "").split(";");
+
+        String[] names = new String[pairs.length];
+        int[][] columns = new int[pairs.length][];
+
+        for (int c = 0; c < pairs.length; ++c) {
+            int pos = pairs[c].indexOf('=');
+
+            /** Each binding must be key=value,value,... */
+            if (pos <= 0 || pos == pairs[c].length() - 1)
+                throw new Exception("Must be in the form key=value,value,...");
+
+            names[c] = pairs[c].substring(0, pos);
+
+            String[] values = pairs[c].substring(pos + 1).split(",");
+            columns[c] = new int[values.length];
+            for (int i = 0; i < values.length; ++i)
+                columns[c][i] = Integer.parseInt(values[i]);
+        }
+
+        int[] totals = evaluateBatch(names, columns, platform);
+
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < totals.length; ++i) {
+            if (i > 0)
+                line.append(',');
+            line.append(totals[i]);
+        }
+
+        // Use the platform strategy to printout the result.
+        platform.outputLine(line.toString());
     }
 
     /** Sets the variable to its corresponding value. */
@@ -129,6 +289,207 @@ public class TreeOps {
     /** Set the current @a ExpressionTree to @a newtree.*/
     void tree(ExpressionTree newTree) {
         tree = newTree;
+
+        /** The compiled program no longer matches the tree. */
+        program = null;
+        generated = null;
+        programRuns = 0;
+        memoValid = false;
+    }
+
+    /** 
+     * Return the current @a ExpressionTree compiled into an @a
+     * ExpressionProgram, compiling it on first use.
+     */
+    ExpressionProgram program() {
+        if (program == null) {
+            program = State.compileTree(tree);
+            if (programStack.length < program.maxStack())
+                programStack = new int[program.maxStack()];
+        }
+        return program;
+    }
+
+    /** 
+     * Run the compiled program against the current values of the
+     * variables in the interpreter's symbol table and return its
+     * total.  A division by zero is reported to the @a platform.
+     */
+    int executeProgram(Platform platform) {
+        ExpressionProgram program = program();
+        int[] vars = interpreter.symbolTable().values();
+
+        programFaulted = false;
+        if (generated != null)
+            try {
+                return generated.eval(vars);
+            } catch (ArithmeticException e) {
+                /** 
+                 * Division by zero, so rerun the program to report
+                 * the error and compute the total the same way the
+                 * EvaluationVisitor does.
+                 */
+                programFaulted = true;
+                return program.execute(vars, programStack, platform);
+            }
+        else if (generateThreshold >= 0
+                 && programRuns++ == generateThreshold) {
+            generated = generateClass(program);
+            if (generated != null)
+                return executeProgram(platform);
+        }
+
+        try {
+            return program.execute(vars, programStack, null);
+        } catch (ArithmeticException e) {
+            // Faults are rare, so only then rerun it to report them.
+            programFaulted = true;
+            return program.execute(vars, programStack, platform);
+        }
+    }
+
+    /** 
+     * Returns true if the last executeProgram() divided by zero.
+     */
+    boolean programFaulted() {
+        return programFaulted;
+    }
+
+    /** 
+     * Returns the total memoized for the current tree, or null if
+     * there isn't one or a variable the tree reads has changed since
+     * the total was computed.
+     */
+    Integer memoizedTotal() {
+        if (!memoValid)
+            return null;
+
+        int[] vars = interpreter.symbolTable().values();
+        for (int i = 0; i < memoSlots.length; ++i)
+            if (vars[memoSlots[i]] != memoValues[i])
+                return null;
+        return memoTotal;
+    }
+
+    /** 
+     * Memoize @a total as the total of the current tree for the
+     * current values of the variables in @a slots, i.e., those it
+     * read.  A total whose evaluation @a faulted (i.e., divided by
+     * zero) isn't memoized, since the error must be reported every
+     * time.
+     */
+    void memoize(int total, int[] slots, boolean faulted) {
+        if (!memoizeTotals || faulted)
+            return;
+
+        int[] vars = interpreter.symbolTable().values();
+        if (memoValues.length < slots.length)
+            memoValues = new int[slots.length];
+        for (int i = 0; i < slots.length; ++i)
+            memoValues[i] = vars[slots[i]];
+        memoSlots = slots;
+        memoTotal = total;
+        memoValid = true;
+    }
+
+    /** 
+     * Run the compiled program once per row of the variable bindings
+     * in @a columns, where @a columns[c] binds the variable named @a
+     * names[c], and return the totals.  Errors are reported to the
+     * @a platform.
+     */
+    int[] executeBatch(String[] names,
+                       int[][] columns,
+                       Platform platform) {
+        ExpressionProgram program = program();
+        Interpreter.SymbolTable symbolTable = interpreter.symbolTable();
+
+        int[] slots = new int[names.length];
+        for (int c = 0; c < names.length; ++c)
+            slots[c] = symbolTable.slot(names[c]);
+
+        if (batchEvaluator == null)
+            batchEvaluator = new BatchEvaluator();
+
+        int[] results = new int[columns[0].length];
+        batchEvaluator.evaluate(program,
+                                symbolTable.values(),
+                                slots,
+                                columns,
+                                results,
+                                platform);
+        return results;
+    }
+
+    /** 
+     * Translate @a program into a JVM class, returning null if it
+     * can't be.
+     */
+    private static IntExpression generateClass(ExpressionProgram program) {
+        synchronized (classGenerator) {
+            return classGenerator.generate(program);
+        }
+    }
+
+    /** 
+     * Use @a cache to look up the trees of the expressions passed to
+     * makeTree() before interpreting them, or interpret them from
+     * scratch if @a cache is null.
+     */
+    public void parseTreeCache(ParseTreeCache cache) {
+        parseTreeCache = cache;
+    }
+
+    /** 
+     * Returns the tree of @a expression, which is interpreted by the
+     * interpreter unless the @a parseTreeCache already holds it.
+     */
+    ExpressionTree interpret(String expression) {
+        expressionLength = expression.length();
+        return parseTreeCache == null
+            ? interpreter.interpret(expression)
+            : parseTreeCache.interpret(expression, interpreter);
+    }
+
+    /** 
+     * Returns an estimate of the number of bytes this object holds,
+     * i.e., its tree (estimated from the length of its expression),
+     * symbol table, and compiled program.
+     */
+    public long bytes() {
+        long bytes = BASE_BYTES
+            + (long) CHARACTER_BYTES * expressionLength
+            + (long) VARIABLE_BYTES * interpreter.symbolTable().size();
+        if (program != null)
+            bytes += (long) INSTRUCTION_BYTES * program.code().length;
+        return bytes;
+    }
+
+    /** 
+     * Use @a evaluator to evaluate batches of variable bindings,
+     * e.g., a @a ParallelBatchEvaluator for very large batches.
+     */
+    public void batchEvaluator(BatchEvaluator evaluator) {
+        batchEvaluator = evaluator;
+    }
+
+    /** 
+     * Memoize the total of each tree, so evaluating it again without
+     * changing the variables it reads just prints the total, if @a
+     * memoize is true, or evaluate it every time if it's false.
+     */
+    public void memoizeTotals(boolean memoize) {
+        memoizeTotals = memoize;
+        memoValid = false;
+    }
+
+    /** 
+     * Set the number of times a compiled program runs before it's
+     * translated into JVM bytecode to @a threshold.  A negative
+     * value disables the translation.
+     */
+    public void generateThreshold(int threshold) {
+        generateThreshold = threshold;
     }
 
     /**
@@ -15,9 +15,16 @@ public abstract class UserCommand {
      */
     protected TreeOps treeOps;
 	
-    /** Runs the command. */
-    public abstract void execute() throws Exception;
+    /** 
+     * Runs the command, sending its output to the @a platform of the
+     * request it belongs to.
+     */
+    public abstract void execute(Platform platform) throws Exception;
 
-    /** Print the valid commands available to users. */
-    public abstract void printValidCommands(boolean verboseField);
+    /** 
+     * Print the valid commands available to users on the @a
+     * platform.
+     */
+    public abstract void printValidCommands(boolean verboseField,
+                                            Platform platform);
 }
@@ -67,6 +67,13 @@ public class UserCommandFactory {
         commandMap.put("eval", 
                        param -> new EvalCommand(treeOps, param));
         
+    	/** 
+         * An "evalbatch" string maps to a command object that creates
+         * an @a EvalBatchCommand implementation.
+         */
+        commandMap.put("evalbatch", 
+                       param -> new EvalBatchCommand(treeOps, param));
+
     	/** 
          * A "set" string maps to a command object that creates a @a
          * SetCommand implementation.
@@ -108,6 +115,11 @@ public class UserCommandFactory {
                        param -> new QuitCommand(treeOps));
     }
 
+    /** Returns the @a TreeOps that's the target of the commands. */
+    TreeOps treeOps() {
+        return treeOps;
+    }
+
     /** 
      * Create a new @a UserCommand object based on the caller's
      * designated @a inputString.
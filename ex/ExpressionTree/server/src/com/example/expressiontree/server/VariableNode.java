@@ -0,0 +1,58 @@
+package com.example.expressiontree.server;
+
+/**
+ * @class VariableNode
+ * 
+ * @brief Defines a terminal node that refers to a variable.  Its
+ *        value is looked up by slot in the @a Interpreter.SymbolTable
+ *        each time the node is evaluated, so setting a variable takes
+ *        effect without rebuilding the expression tree.  It plays the
+ *        role of the "Leaf" in the Composite pattern.
+ */
+public class VariableNode extends ComponentNode {
+    /** Name of the variable. */
+    private String name;
+
+    /** Slot of the variable in the symbol table. */
+    private int slot;
+
+    /** Symbol table that holds the value of the variable. */
+    private Interpreter.SymbolTable symbolTable;
+
+    /* Ctor */
+    public VariableNode(String name,
+                        int slot,
+                        Interpreter.SymbolTable symbolTable) {
+        this.name = name;
+        this.slot = slot;
+        this.symbolTable = symbolTable;
+    }
+
+    /* Return the current value of the variable. */
+    public int item() {
+        return symbolTable.get(slot);
+    }
+
+    /* Return the name of the variable. */
+    public String name() {
+        return name;
+    }
+
+    /* Return the slot of the variable in the symbol table. */
+    public int slot() {
+        return slot;
+    }
+
+    /* Return the symbol table that holds the variable's value. */
+    public Interpreter.SymbolTable symbolTable() {
+        return symbolTable;
+    }
+
+    /* 
+     * Define the @a accept() operation used for the Visitor
+     * pattern. 
+     */
+    public void accept(Visitor visitor) {
+        visitor.visit(this);
+    }
+}
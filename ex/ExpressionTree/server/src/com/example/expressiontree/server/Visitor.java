@@ -11,6 +11,9 @@ public interface Visitor {
     /** Visit a @a LeafNode. */
     void visit(LeafNode node);
 
+    /** Visit a @a VariableNode. */
+    void visit(VariableNode node);
+
     /** Visit a @a CompositeNegateNode. */
     void visit(CompositeNegateNode node);
 
@@ -14,10 +14,11 @@ import java.util.HashMap;
 public class VisitorFactory {
     /** 
      * This interface uses the Command pattern to create @a Visitor
-     * implementations at runtime.
+     * implementations at runtime that send their output (if any) to
+     * the designated @a platform.
      */
     private static interface IVisitorFactoryCommand {
-        public Visitor execute();
+        public Visitor execute(Platform platform);
     }
 
     /**
@@ -41,28 +42,46 @@ public class VisitorFactory {
          * an @a EvaluationVisitor implementation.
          */
         visitorMap.put("eval",
-                       () -> new EvaluationVisitor());
+                       platform -> new EvaluationVisitor(platform));
             
         /**
          * A "print" string maps to a command object that creates
          * an @a PrintVisitor implementation.
          */
         visitorMap.put("print",
-                       () -> new PrintVisitor());
+                       platform -> new PrintVisitor(platform));
+
+        /**
+         * A "compile" string maps to a command object that creates
+         * an @a CompileVisitor implementation.
+         */
+        visitorMap.put("compile",
+                       platform -> new CompileVisitor());
     }
 	
     /** 
      * Create a new @a Visitor object based on the caller's
-     * designated @a visitorRequest.
+     * designated @a visitorRequest, for a visitor that has no
+     * output, e.g., the @a CompileVisitor.
      */
     public Visitor makeVisitor(String visitorRequest) {
+        return makeVisitor(visitorRequest, null);
+    }
+
+    /** 
+     * Create a new @a Visitor object based on the caller's
+     * designated @a visitorRequest that sends its output to the
+     * designated @a platform.
+     */
+    public Visitor makeVisitor(String visitorRequest,
+                               Platform platform) {
         /** Try to find the pre-allocated factory command. */
         IVisitorFactoryCommand command =
             visitorMap.get(visitorRequest);
 
         if(command != null)
             /** If we find it then execute it. */
-            return command.execute();
+            return command.execute(platform);
         else
             /** 
              * Otherwise, the user gave an unknown request, so throw